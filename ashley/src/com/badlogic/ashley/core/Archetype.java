@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.core;
+
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Bits;
+
+/**
+ * Groups all the {@link Entity} objects of an {@link ArchetypeEngine} that have exactly the same set of {@link Component} types.
+ * Entities are stored in fixed-size {@link ArchetypeChunk}s with one column per component type, so systems can walk the
+ * components of many entities linearly. Archetypes can't be instantiated directly, they are created by the
+ * {@link ArchetypeEngine} as entities with new component combinations show up.
+ */
+public final class Archetype {
+	final Bits componentBits;
+	private final int index;
+	private final int[] componentTypeIndices;
+	private final int[] columnIndices;
+	private final int chunkCapacity;
+	private final Array<ArchetypeChunk> chunks;
+	private final ImmutableArray<ArchetypeChunk> immutableChunks;
+	private ArchetypeChunk spareChunk;
+	private int size;
+
+	Archetype (int index, Bits componentBits, int chunkCapacity) {
+		this.index = index;
+		this.componentBits = componentBits;
+		this.chunkCapacity = chunkCapacity;
+
+		int numColumns = 0;
+		for (int i = componentBits.nextSetBit(0); i >= 0; i = componentBits.nextSetBit(i + 1)) {
+			numColumns++;
+		}
+
+		componentTypeIndices = new int[numColumns];
+		columnIndices = new int[componentBits.length()];
+
+		for (int i = 0; i < columnIndices.length; ++i) {
+			columnIndices[i] = -1;
+		}
+
+		int column = 0;
+		for (int i = componentBits.nextSetBit(0); i >= 0; i = componentBits.nextSetBit(i + 1)) {
+			componentTypeIndices[column] = i;
+			columnIndices[i] = column++;
+		}
+
+		chunks = new Array<ArchetypeChunk>(true, 4);
+		immutableChunks = new ImmutableArray<ArchetypeChunk>(chunks);
+	}
+
+	/** @return This archetype's unique index within its {@link ArchetypeEngine} */
+	public int getIndex () {
+		return index;
+	}
+
+	/** @return The number of entities currently stored in this archetype. */
+	public int size () {
+		return size;
+	}
+
+	/** @return The number of component types, and therefore columns, of this archetype. */
+	public int getNumComponentTypes () {
+		return componentTypeIndices.length;
+	}
+
+	/** @return Whether or not the entities of this archetype have a {@link Component} of the specified type. */
+	public boolean hasComponent (ComponentType componentType) {
+		return getColumnIndex(componentType.getIndex()) >= 0;
+	}
+
+	/**
+	 * @return immutable collection with the non empty chunks of this archetype. Every chunk but the last one is full.
+	 */
+	public ImmutableArray<ArchetypeChunk> getChunks () {
+		return immutableChunks;
+	}
+
+	int getColumnIndex (int componentTypeIndex) {
+		return componentTypeIndex < columnIndices.length ? columnIndices[componentTypeIndex] : -1;
+	}
+
+	int getComponentTypeIndex (int column) {
+		return componentTypeIndices[column];
+	}
+
+	void add (Entity entity) {
+		ArchetypeChunk chunk = chunks.size > 0 ? chunks.peek() : null;
+
+		if (chunk == null || chunk.size == chunkCapacity) {
+			if (spareChunk != null) {
+				chunk = spareChunk;
+				spareChunk = null;
+			} else {
+				chunk = new ArchetypeChunk(this, chunkCapacity);
+			}
+
+			chunks.add(chunk);
+		}
+
+		int row = chunk.size++;
+		chunk.write(row, entity);
+		entity.archetypeChunk = chunk;
+		entity.archetypeRow = row;
+		size++;
+	}
+
+	void refresh (Entity entity) {
+		entity.archetypeChunk.write(entity.archetypeRow, entity);
+	}
+
+	void remove (Entity entity) {
+		ArchetypeChunk chunk = entity.archetypeChunk;
+		int row = entity.archetypeRow;
+		ArchetypeChunk lastChunk = chunks.peek();
+		int lastRow = lastChunk.size - 1;
+
+		// Keep chunks dense by moving the last entity of the archetype into the hole.
+		if (chunk != lastChunk || row != lastRow) {
+			Entity moved = lastChunk.entities[lastRow];
+			chunk.copy(row, lastChunk, lastRow);
+			moved.archetypeChunk = chunk;
+			moved.archetypeRow = row;
+		}
+
+		lastChunk.clear(lastRow);
+		lastChunk.size--;
+
+		if (lastChunk.size == 0) {
+			chunks.pop();
+			spareChunk = lastChunk;
+		}
+
+		entity.archetypeChunk = null;
+		entity.archetypeRow = -1;
+		size--;
+	}
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.core;
+
+/**
+ * Fixed-size block of entities belonging to the same {@link Archetype}. Each {@link Component} type of the archetype is stored
+ * in its own column, row {@code i} of every column belongs to {@link #getEntity(int)}. Only rows below {@link #size()} are
+ * valid. Chunks are managed by the {@link ArchetypeEngine}, their contents must not be modified directly.
+ */
+public final class ArchetypeChunk {
+	final Archetype archetype;
+	final Entity[] entities;
+	final Component[][] columns;
+	int size;
+
+	ArchetypeChunk (Archetype archetype, int capacity) {
+		this.archetype = archetype;
+		entities = new Entity[capacity];
+		columns = new Component[archetype.getNumComponentTypes()][capacity];
+	}
+
+	/** @return The {@link Archetype} this chunk belongs to. */
+	public Archetype getArchetype () {
+		return archetype;
+	}
+
+	/** @return The number of entities stored in this chunk. */
+	public int size () {
+		return size;
+	}
+
+	/** @return The maximum number of entities this chunk can store. */
+	public int getCapacity () {
+		return entities.length;
+	}
+
+	/** @return The {@link Entity} stored at the given row. */
+	public Entity getEntity (int row) {
+		return entities[row];
+	}
+
+	/**
+	 * @return The column holding the components of the specified type, indexed by row, or null if the archetype doesn't have
+	 *         such a component. The returned array is owned by the chunk, don't modify it.
+	 */
+	public Component[] getColumn (ComponentType componentType) {
+		int column = archetype.getColumnIndex(componentType.getIndex());
+		return column >= 0 ? columns[column] : null;
+	}
+
+	/** Quick helper method. The same could be done via {@link #getColumn(ComponentType)}. */
+	public Component[] getColumn (Class<? extends Component> componentClass) {
+		return getColumn(ComponentType.getFor(componentClass));
+	}
+
+	void write (int row, Entity entity) {
+		entities[row] = entity;
+
+		for (int column = 0; column < columns.length; ++column) {
+			columns[column][row] = entity.getComponent(archetype.getComponentTypeIndex(column));
+		}
+	}
+
+	void copy (int row, ArchetypeChunk source, int sourceRow) {
+		entities[row] = source.entities[sourceRow];
+
+		for (int column = 0; column < columns.length; ++column) {
+			columns[column][row] = source.columns[column][sourceRow];
+		}
+	}
+
+	void clear (int row) {
+		entities[row] = null;
+
+		for (int column = 0; column < columns.length; ++column) {
+			columns[column][row] = null;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.core;
+
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * {@link Engine} that additionally groups its entities by {@link Archetype}, storing the components of entities with the same
+ * component types contiguously in {@link ArchetypeChunk}s. Iterating over the chunks of {@link #getArchetypesFor(Family)}
+ * touches memory linearly, as opposed to chasing each {@link Entity} for its components.
+ * <ul>
+ * <li>Chunk contents follow family membership: they are updated whenever the families of an entity are.</li>
+ * <li>Use {@link com.badlogic.ashley.systems.ChunkIteratingSystem} to process entities chunk by chunk.</li>
+ * </ul>
+ */
+public class ArchetypeEngine extends Engine {
+	/** Number of entities stored per {@link ArchetypeChunk} unless specified otherwise. */
+	public static final int DEFAULT_CHUNK_CAPACITY = 128;
+
+	private final ArchetypeManager archetypeManager;
+
+	/** Creates a new ArchetypeEngine with chunks of {@link #DEFAULT_CHUNK_CAPACITY} entities. */
+	public ArchetypeEngine () {
+		this(DEFAULT_CHUNK_CAPACITY);
+	}
+
+	/**
+	 * Creates a new ArchetypeEngine.
+	 * @param chunkCapacity number of entities stored in each {@link ArchetypeChunk}.
+	 */
+	public ArchetypeEngine (int chunkCapacity) {
+		super();
+
+		archetypeManager = new ArchetypeManager(chunkCapacity);
+	}
+
+	/** @return immutable collection of all the archetypes that have been created by this engine. */
+	public ImmutableArray<Archetype> getArchetypes () {
+		return archetypeManager.getArchetypes();
+	}
+
+	/**
+	 * Returns immutable collection of the archetypes whose entities match the specified {@link Family}. Returns the same
+	 * instance every time for the same Family. Archetypes may be empty.
+	 */
+	public ImmutableArray<Archetype> getArchetypesFor (Family family) {
+		return archetypeManager.getArchetypesFor(family);
+	}
+
+	@Override
+	protected void addEntityInternal (Entity entity) {
+		archetypeManager.updateArchetype(entity);
+		super.addEntityInternal(entity);
+	}
+
+	@Override
+	protected void addEntitiesInternal (Array<Entity> entities) {
+		for (int i = 0; i < entities.size; ++i) {
+			archetypeManager.updateArchetype(entities.get(i));
+		}
+
+		super.addEntitiesInternal(entities);
+	}
+
+	@Override
+	protected void removeEntityInternal (Entity entity) {
+		super.removeEntityInternal(entity);
+		archetypeManager.removeFromArchetype(entity);
+	}
+
+	@Override
+	protected void removeEntitiesInternal (Array<Entity> entities) {
+		super.removeEntitiesInternal(entities);
+
+		for (int i = 0; i < entities.size; ++i) {
+			archetypeManager.removeFromArchetype(entities.get(i));
+		}
+	}
+
+	@Override
+	protected void componentsChangedInternal (Entity entity, int componentTypeIndex) {
+		archetypeManager.updateArchetype(entity);
+		super.componentsChangedInternal(entity, componentTypeIndex);
+	}
+}
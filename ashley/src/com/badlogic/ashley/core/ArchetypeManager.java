@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.core;
+
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Bits;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+class ArchetypeManager {
+	private final int chunkCapacity;
+	private IntMap<Array<Archetype>> archetypesByHash = new IntMap<Array<Archetype>>();
+	private Array<Archetype> archetypes = new Array<Archetype>(false, 16);
+	private ImmutableArray<Archetype> immutableArchetypes = new ImmutableArray<Archetype>(archetypes);
+	private ObjectMap<Family, Array<Archetype>> families = new ObjectMap<Family, Array<Archetype>>();
+	private ObjectMap<Family, ImmutableArray<Archetype>> immutableFamilies = new ObjectMap<Family, ImmutableArray<Archetype>>();
+
+	public ArchetypeManager (int chunkCapacity) {
+		if (chunkCapacity <= 0) {
+			throw new IllegalArgumentException("chunkCapacity must be greater than zero.");
+		}
+
+		this.chunkCapacity = chunkCapacity;
+	}
+
+	public ImmutableArray<Archetype> getArchetypes () {
+		return immutableArchetypes;
+	}
+
+	public ImmutableArray<Archetype> getArchetypesFor (Family family) {
+		ImmutableArray<Archetype> archetypesInFamily = immutableFamilies.get(family);
+
+		if (archetypesInFamily == null) {
+			Array<Archetype> familyArchetypes = new Array<Archetype>(false, 16);
+			archetypesInFamily = new ImmutableArray<Archetype>(familyArchetypes);
+			families.put(family, familyArchetypes);
+			immutableFamilies.put(family, archetypesInFamily);
+
+			for (Archetype archetype : archetypes) {
+				if (family.matches(archetype.componentBits)) {
+					familyArchetypes.add(archetype);
+				}
+			}
+		}
+
+		return archetypesInFamily;
+	}
+
+	public void updateArchetype (Entity entity) {
+		Archetype archetype = obtainArchetype(entity.getComponentBits());
+		ArchetypeChunk chunk = entity.archetypeChunk;
+
+		if (chunk != null && chunk.archetype == archetype) {
+			archetype.refresh(entity);
+			return;
+		}
+
+		if (chunk != null) {
+			chunk.archetype.remove(entity);
+		}
+
+		archetype.add(entity);
+	}
+
+	public void removeFromArchetype (Entity entity) {
+		ArchetypeChunk chunk = entity.archetypeChunk;
+
+		if (chunk != null) {
+			chunk.archetype.remove(entity);
+		}
+	}
+
+	private Archetype obtainArchetype (Bits componentBits) {
+		int hash = ComponentType.hashBits(componentBits);
+		Array<Archetype> bucket = archetypesByHash.get(hash);
+		Archetype archetype = null;
+
+		if (bucket != null) {
+			for (int i = 0; i < bucket.size && archetype == null; ++i) {
+				if (bucket.get(i).componentBits.equals(componentBits)) {
+					archetype = bucket.get(i);
+				}
+			}
+		} else {
+			bucket = new Array<Archetype>(false, 1);
+			archetypesByHash.put(hash, bucket);
+		}
+
+		if (archetype == null) {
+			Bits key = new Bits();
+			key.or(componentBits);
+			archetype = new Archetype(archetypes.size, key, chunkCapacity);
+			bucket.add(archetype);
+			archetypes.add(archetype);
+
+			for (ObjectMap.Entry<Family, Array<Archetype>> entry : families) {
+				if (entry.key.matches(key)) {
+					entry.value.add(archetype);
+				}
+			}
+		}
+
+		return archetype;
+	}
+}
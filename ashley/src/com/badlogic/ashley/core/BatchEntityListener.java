@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.badlogic.ashley.core;
+
+import com.badlogic.ashley.utils.ImmutableArray;
+
+/**
+ * An {@link EntityListener} that is notified once per family with all the entities that entered or left it together, so that
+ * listeners maintaining their own indices can update them in bulk. Batches are delivered when the {@link Engine} processes the
+ * component changes delayed during a system update, when entities are added together and when entities are removed together,
+ * see {@link Engine#removeAllEntities()}. Changes that are applied right away, one entity at a time, still go through
+ * {@link #entityAdded(Entity)} and {@link #entityRemoved(Entity)}.
+ * <ul>
+ * <li>A batch only holds net changes: an entity that entered and left the family within the same batch is not reported.</li>
+ * <li>Removals are delivered before additions, the arrays are only valid during the call.</li>
+ * </ul>
+ */
+public interface BatchEntityListener extends EntityListener {
+	/** Called with the entities that were added to the {@link Family} the listener is registered for. */
+	public void entitiesAdded (ImmutableArray<Entity> entities);
+
+	/** Called with the entities that were removed from the {@link Family} the listener is registered for. */
+	public void entitiesRemoved (ImmutableArray<Entity> entities);
+}
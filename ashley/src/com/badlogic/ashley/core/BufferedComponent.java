@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.core;
+
+/**
+ * Base class for double-buffered components, accessed via a {@link BufferedComponentMapper}. Besides its current state, which
+ * systems write, the component keeps a copy of its state as of the end of the last {@link Engine#update(float)}, which systems
+ * running concurrently with the writers can read without locking.
+ * @param <T> the class type of the component itself.
+ */
+public abstract class BufferedComponent<T extends BufferedComponent<T>> implements Component {
+	T previous;
+	boolean dirty;
+
+	/**
+	 * Copies the state of the given component into this one, called on the engine thread to update the previous state of
+	 * written components.
+	 */
+	protected abstract void set (T other);
+}
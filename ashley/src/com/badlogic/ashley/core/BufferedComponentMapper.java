@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.core;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Provides access to the two states of a {@link BufferedComponent} for the entities of one {@link Engine}.
+ * <ul>
+ * <li>{@link #getPrevious(Entity)} returns the state as of the end of the last update, to be treated as read-only. It does not
+ * change while the engine updates, so it can be read from any thread.</li>
+ * <li>{@link #getCurrent(Entity)} returns the writable state and marks the component as written.</li>
+ * <li>At the end of {@link Engine#update(float)}, and only for the written components, the current state is copied into the
+ * previous one.</li>
+ * </ul>
+ * Only the state of components is buffered, not whether an entity has them: {@link Entity#add(Component)} and
+ * {@link Entity#remove(Class)} apply right away, also while the engine updates. Components added meanwhile have no previous
+ * state until the change is processed, their current state is returned instead, and removed ones have none at all. With a
+ * {@link ScheduledEngine}, systems only reading previous states need not declare the type, so they may run concurrently with
+ * its writers, e.g. {@code reads()} declares that a system accesses no current state.
+ * @param <T> the class type of the {@link BufferedComponent}.
+ */
+public final class BufferedComponentMapper<T extends BufferedComponent<T>> {
+	private final Engine engine;
+	private final Class<T> componentClass;
+	final ComponentType componentType;
+	private final Array<T> written = new Array<T>(false, 16);
+
+	/**
+	 * @param componentClass Component class to be retrieved by the mapper.
+	 * @param engine Engine whose updates swap the states of the components.
+	 * @return The instance of the engine that provides access to the states of the specified class.
+	 */
+	public static <T extends BufferedComponent<T>> BufferedComponentMapper<T> getFor (Class<T> componentClass, Engine engine) {
+		return engine.getBufferedMapper(componentClass);
+	}
+
+	/** @return The state of the entity's component as of the end of the last update, null if it has no such component now. */
+	@SuppressWarnings("unchecked")
+	public T getPrevious (Entity entity) {
+		// Previous states never change during an update, reading them is not an access a ScheduledEngine needs to know about.
+		T component = (T)entity.getComponent(componentType.getIndex());
+
+		if (component == null) {
+			return null;
+		}
+
+		T previous = component.previous;
+		return previous != null ? previous : component;
+	}
+
+	/**
+	 * @return The current state of the entity's component, marked as written, null if it has no such component. Only one
+	 * thread may write a given component during an update.
+	 */
+	public T getCurrent (Entity entity) {
+		T component = entity.getComponent(componentType);
+
+		if (component != null && !component.dirty) {
+			component.dirty = true;
+
+			synchronized (written) {
+				written.add(component);
+			}
+		}
+
+		return component;
+	}
+
+	/**
+	 * @return Whether or not entity has the component of the specified class now, which tells whether
+	 * {@link #getPrevious(Entity)} returns a state. A component added or removed during the update shows right away.
+	 */
+	public boolean has (Entity entity) {
+		// Not checked like getPrevious(), systems reading previous states need not declare the type.
+		return entity.getComponentBits().get(componentType.getIndex());
+	}
+
+	BufferedComponentMapper (Class<T> componentClass, Engine engine) {
+		this.engine = engine;
+		this.componentClass = componentClass;
+		this.componentType = ComponentType.getFor(componentClass);
+	}
+
+	/** Gives the entity's component a previous state if it has none yet, called when the entity's components change. */
+	void prepare (Entity entity) {
+		T component = entity.getComponent(componentType);
+
+		if (component != null && component.previous == null) {
+			component.previous = newPrevious(component);
+		}
+	}
+
+	/** Releases the previous state of the entity's component, called when the entity leaves the engine. */
+	void release (Entity entity) {
+		BufferedComponent<?> component = (BufferedComponent<?>)entity.getComponent(componentType.getIndex());
+
+		if (component != null) {
+			release(component);
+		}
+	}
+
+	/**
+	 * Gives the previous state of a component leaving its entity back to the engine and forgets the component was written, so
+	 * a recycled component never brings back the state of its last owner.
+	 */
+	@SuppressWarnings("unchecked")
+	void release (BufferedComponent<?> component) {
+		if (component.dirty) {
+			component.dirty = false;
+
+			synchronized (written) {
+				written.removeValue((T)component, true);
+			}
+		}
+
+		if (component.previous != null) {
+			engine.freeComponent(component.previous);
+			component.previous = null;
+		}
+	}
+
+	/** Copies the current state of the written components into their previous one. */
+	void swap () {
+		for (int i = 0; i < written.size; ++i) {
+			T component = written.get(i);
+
+			if (component.previous == null) {
+				component.previous = newPrevious(component);
+			} else {
+				component.previous.set(component);
+			}
+
+			component.dirty = false;
+		}
+
+		written.clear();
+	}
+
+	private T newPrevious (T component) {
+		T previous = engine.createComponent(componentClass);
+
+		if (previous == null) {
+			throw new IllegalArgumentException("Cannot create component of type " + componentClass.getName());
+		}
+
+		previous.set(component);
+		return previous;
+	}
+}
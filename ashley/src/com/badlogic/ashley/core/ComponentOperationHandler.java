@@ -6,32 +6,50 @@ import com.badlogic.gdx.utils.Pool;
 
 class ComponentOperationHandler {
 	private BooleanInformer delayed;
+	private ComponentListener listener;
 	private ComponentOperationPool operationPool = new ComponentOperationPool();;
+	/** Checks every component access of the engine's entities when set, see {@link ScheduledEngine#setValidating(boolean)}. */
+	ComponentAccessValidator accessValidator;
+	/** Told about buffered components leaving the engine's entities once the engine has a {@link BufferedComponentMapper}. */
+	BufferedComponentListener bufferedListener;
  	private Array<ComponentOperation> operations = new Array<ComponentOperation>();;
 
  	public ComponentOperationHandler(BooleanInformer delayed) {
+ 		this(delayed, null);
+ 	}
+
+ 	public ComponentOperationHandler(BooleanInformer delayed, ComponentListener listener) {
  		this.delayed = delayed;
+ 		this.listener = listener;
  	}
  	
-	public void add(Entity entity) {
+	public void add(Entity entity, int componentTypeIndex) {
 		if (delayed.value()) {
-			ComponentOperation operation = operationPool.obtain();
-			operation.makeAdd(entity);
-			operations.add(operation);
+			obtainOperation(entity, componentTypeIndex).adds++;
 		}
 		else {
-			entity.notifyComponentAdded();
+			notifyAdded(entity, componentTypeIndex);
 		}
 	}
 
-	public void remove(Entity entity) {
+	public void remove(Entity entity, int componentTypeIndex) {
 		if (delayed.value()) {
-			ComponentOperation operation = operationPool.obtain();
-			operation.makeRemove(entity);
-			operations.add(operation);
+			obtainOperation(entity, componentTypeIndex).removes++;
 		}
 		else {
-			entity.notifyComponentRemoved();
+			notifyRemoved(entity, componentTypeIndex);
+		}
+	}
+	
+	/** Notifies several changes made to the entity at once, with a single membership update. */
+	public void changed(Entity entity, int componentTypeIndex, int adds, int removes) {
+		if (delayed.value()) {
+			ComponentOperation operation = obtainOperation(entity, componentTypeIndex);
+			operation.adds += adds;
+			operation.removes += removes;
+		}
+		else {
+			notifyChanged(entity, componentTypeIndex, adds, removes);
 		}
 	}
 	
@@ -42,45 +60,85 @@ class ComponentOperationHandler {
 	public void processOperations() {
 		for (int i = 0; i < operations.size; ++i) {
 			ComponentOperation operation = operations.get(i);
+			Entity entity = operation.entity;
 
-			switch(operation.type) {
-				case Add:
-					operation.entity.notifyComponentAdded();
-					break;
-				case Remove:
-					operation.entity.notifyComponentRemoved();
-					break;
-				default: break;
+			// Changes made while notifying are queued in a new operation.
+			if (entity.componentOperation == operation) {
+				entity.componentOperation = null;
 			}
 
+			notifyChanged(entity, operation.componentTypeIndex, operation.adds, operation.removes);
 			operationPool.free(operation);
 		}
 
 		operations.clear();
 	}
 	
-	private static class ComponentOperation implements Pool.Poolable {
-		public enum Type {
-			Add,
-			Remove,
+	private ComponentOperation obtainOperation(Entity entity, int componentTypeIndex) {
+		ComponentOperation operation = entity.componentOperation;
+
+		if (operation != null && operation.handler == this) {
+			if (operation.componentTypeIndex != componentTypeIndex) {
+				operation.componentTypeIndex = -1;
+			}
+		}
+		else {
+			operation = operationPool.obtain();
+			operation.handler = this;
+			operation.entity = entity;
+			operation.componentTypeIndex = componentTypeIndex;
+			entity.componentOperation = operation;
+			operations.add(operation);
 		}
 
-		public Type type;
-		public Entity entity;
+		return operation;
+	}
+	
+	private void notifyChanged(Entity entity, int componentTypeIndex, int adds, int removes) {
+		// A single membership update covers all the changes, signals are dispatched once per change.
+		notifyListener(entity, componentTypeIndex);
 
-		public void makeAdd(Entity entity) {
-			this.type = Type.Add;
-			this.entity = entity;
+		for (int i = 0; i < adds; ++i) {
+			entity.notifyComponentAdded();
 		}
 
-		public void makeRemove(Entity entity) {
-			this.type = Type.Remove;
-			this.entity = entity;
+		for (int i = 0; i < removes; ++i) {
+			entity.notifyComponentRemoved();
+		}
+	}
+	
+	private void notifyAdded(Entity entity, int componentTypeIndex) {
+		notifyListener(entity, componentTypeIndex);
+		entity.notifyComponentAdded();
+	}
+	
+	private void notifyRemoved(Entity entity, int componentTypeIndex) {
+		notifyListener(entity, componentTypeIndex);
+		entity.notifyComponentRemoved();
+	}
+	
+	private void notifyListener(Entity entity, int componentTypeIndex) {
+		// Entities removed before a delayed operation is processed no longer belong to us.
+		if (listener != null && entity.componentOperationHandler == this) {
+			listener.componentChanged(entity, componentTypeIndex);
 		}
+	}
+	
+	/** Changes queued for an entity while delayed, an entity has at most one pending operation per handler. */
+	static class ComponentOperation implements Pool.Poolable {
+		public ComponentOperationHandler handler;
+		public Entity entity;
+		/** Index of the changed component type, -1 if several types changed. */
+		public int componentTypeIndex;
+		public int adds;
+		public int removes;
 
 		@Override
 		public void reset() {
+			handler = null;
 			entity = null;
+			adds = 0;
+			removes = 0;
 		}
 	}
 	
@@ -94,4 +152,16 @@ class ComponentOperationHandler {
 	interface BooleanInformer {
 		public boolean value();
 	}
+	
+	interface ComponentListener {
+		public void componentChanged(Entity entity, int componentTypeIndex);
+	}
+	
+	interface ComponentAccessValidator {
+		public void checkAccess(Entity entity, int componentTypeIndex, boolean write);
+	}
+	
+	interface BufferedComponentListener {
+		public void bufferedComponentRemoved(BufferedComponent<?> component);
+	}
 }
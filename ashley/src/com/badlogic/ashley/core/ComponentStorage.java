@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.badlogic.ashley.core;
+
+/**
+ * The {@link ComponentStore}s of the entities registered with an engine, one per {@link ComponentType} index. Entities read
+ * their components from it while they are registered, and keep them to themselves otherwise.
+ */
+class ComponentStorage {
+	private ComponentStore[] stores = new ComponentStore[16];
+
+	/** @return The store of the component type, null if no registered entity ever had such a component. */
+	ComponentStore peek (int componentTypeIndex) {
+		ComponentStore[] stores = this.stores;
+		return componentTypeIndex < stores.length ? stores[componentTypeIndex] : null;
+	}
+
+	/** @return The store of the component type, created if needed. */
+	ComponentStore get (int componentTypeIndex) {
+		if (componentTypeIndex >= stores.length) {
+			ComponentStore[] newStores = new ComponentStore[Math.max(componentTypeIndex + 1, stores.length * 2)];
+			System.arraycopy(stores, 0, newStores, 0, stores.length);
+			stores = newStores;
+		}
+
+		ComponentStore store = stores[componentTypeIndex];
+
+		if (store == null) {
+			store = new ComponentStore();
+			stores[componentTypeIndex] = store;
+		}
+
+		return store;
+	}
+
+	/** @return The component of the given type of the registered entity with the given index, null if it has none. */
+	Component get (int componentTypeIndex, int entityIndex) {
+		ComponentStore store = peek(componentTypeIndex);
+		return store != null ? store.get(entityIndex) : null;
+	}
+
+	/** @return Whether the registered entity with the given index has a component of the given type. */
+	boolean has (int componentTypeIndex, int entityIndex) {
+		ComponentStore store = peek(componentTypeIndex);
+		return store != null && store.has(entityIndex);
+	}
+
+	/** Moves the components of an entity that was just given an index into the stores. */
+	void attach (Entity entity) {
+		for (int i = 0; i < entity.componentTypeIndices.size; ++i) {
+			get(entity.componentTypeIndices.get(i)).set(entity, entity.getComponents().get(i));
+		}
+
+		entity.storage = this;
+	}
+
+	/** Removes the components of an entity that is about to lose its index from the stores, the entity keeps them. */
+	void detach (Entity entity) {
+		entity.storage = null;
+
+		for (int i = 0; i < entity.componentTypeIndices.size; ++i) {
+			get(entity.componentTypeIndices.get(i)).remove(entity);
+		}
+	}
+}
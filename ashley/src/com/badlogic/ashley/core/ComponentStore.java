@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.badlogic.ashley.core;
+
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Sparse set holding the components of one {@link ComponentType} for the entities of an engine. Components and their entities
+ * are kept in dense arrays, an array indexed by {@link Entity#getIndex()} maps every entity to its position in them, so looking
+ * up the component of an entity is two array reads and scanning all the components of the type is a dense array scan.
+ * Removing a component moves the last one into its place.
+ */
+class ComponentStore {
+	private final Array<Component> components = new Array<Component>(false, 16, Component.class);
+	private final Array<Entity> entities = new Array<Entity>(false, 16, Entity.class);
+	private final ImmutableArray<Component> immutableComponents = new ImmutableArray<Component>(components);
+	private final ImmutableArray<Entity> immutableEntities = new ImmutableArray<Entity>(entities);
+	/** Position of the component of every entity index in the dense arrays plus one, 0 if the entity has none. */
+	private int[] positions = new int[16];
+
+	/** @return The component of the entity with the given index, null if it has none. */
+	Component get (int entityIndex) {
+		int[] positions = this.positions;
+
+		if (entityIndex >= positions.length) {
+			return null;
+		}
+
+		int position = positions[entityIndex];
+		return position != 0 ? components.items[position - 1] : null;
+	}
+
+	/** @return Whether the entity with the given index has a component of the type. */
+	boolean has (int entityIndex) {
+		return entityIndex < positions.length && positions[entityIndex] != 0;
+	}
+
+	/** Stores the component of the registered entity, replacing the one it has. */
+	void set (Entity entity, Component component) {
+		int entityIndex = entity.index;
+
+		if (entityIndex >= positions.length) {
+			int[] newPositions = new int[Math.max(entityIndex + 1, (int)(positions.length * 1.75f))];
+			System.arraycopy(positions, 0, newPositions, 0, positions.length);
+			positions = newPositions;
+		}
+
+		int position = positions[entityIndex];
+
+		if (position != 0) {
+			components.set(position - 1, component);
+			return;
+		}
+
+		components.add(component);
+		entities.add(entity);
+		positions[entityIndex] = components.size;
+	}
+
+	/** Forgets the component of the registered entity, if it has one. */
+	void remove (Entity entity) {
+		int entityIndex = entity.index;
+
+		if (entityIndex >= positions.length || positions[entityIndex] == 0) {
+			return;
+		}
+
+		int position = positions[entityIndex] - 1;
+		positions[entityIndex] = 0;
+		// Swap remove, the last component takes the place of the removed one.
+		components.removeIndex(position);
+		entities.removeIndex(position);
+
+		if (position < entities.size) {
+			positions[entities.get(position).index] = position + 1;
+		}
+	}
+
+	/** @return The components of the type, in the order of {@link #getEntities()}. */
+	ImmutableArray<Component> getComponents () {
+		return immutableComponents;
+	}
+
+	/** @return The entities having a component of the type. */
+	ImmutableArray<Entity> getEntities () {
+		return immutableEntities;
+	}
+}
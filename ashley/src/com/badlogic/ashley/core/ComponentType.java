@@ -16,18 +16,24 @@
 
 package com.badlogic.ashley.core;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.badlogic.gdx.utils.Bits;
-import com.badlogic.gdx.utils.ObjectMap;
 
 /**
  * Uniquely identifies a {@link Component} sub-class. It assigns them an index which is used internally for fast comparison and
  * retrieval. See {@link Family} and {@link Entity}. ComponentType is a package protected class. You cannot instantiate a
  * ComponentType. They can only be accessed via {@link #getIndexFor(Class<? extends Component>)}. Each component class will always
- * return the same instance of ComponentType.
+ * return the same instance of ComponentType. ComponentTypes can be obtained from any thread, looking up an assigned type does not
+ * lock.
  * @author Stefan Bachmann
  */
 public final class ComponentType {
-	private static ObjectMap<Class<? extends Component>, ComponentType> assignedComponentTypes = new ObjectMap<Class<? extends Component>, ComponentType>();
+	/** Number of component types tracked by the long masks of {@link Entity} and {@link Family}, two words of 64 bits. */
+	static final int MASK_SIZE = 128;
+
+	private static final ConcurrentHashMap<Class<? extends Component>, ComponentType> assignedComponentTypes = new ConcurrentHashMap<Class<? extends Component>, ComponentType>();
 	private static int typeIndex = 0;
 
 	private final int index;
@@ -48,6 +54,17 @@ public final class ComponentType {
 	public static ComponentType getFor (Class<? extends Component> componentType) {
 		ComponentType type = assignedComponentTypes.get(componentType);
 
+		if (type == null) {
+			type = assignType(componentType);
+		}
+
+		return type;
+	}
+
+	private static synchronized ComponentType assignType (Class<? extends Component> componentType) {
+		// Indices must stay contiguous, only assign one if no other thread did in the meantime.
+		ComponentType type = assignedComponentTypes.get(componentType);
+
 		if (type == null) {
 			type = new ComponentType();
 			assignedComponentTypes.put(componentType, type);
@@ -65,6 +82,17 @@ public final class ComponentType {
 		return getFor(componentType).getIndex();
 	}
 
+	/** @return The {@link Component} class assigned the given index, or null. Looks through all the types, meant for messages. */
+	static Class<? extends Component> getClassFor (int index) {
+		for (Map.Entry<Class<? extends Component>, ComponentType> entry : assignedComponentTypes.entrySet()) {
+			if (entry.getValue().index == index) {
+				return entry.getKey();
+			}
+		}
+
+		return null;
+	}
+
 	/**
 	 * @param componentTypes list of {@link Component} classes
 	 * @return Bits representing the collection of components for quick comparison and matching. See
@@ -81,6 +109,36 @@ public final class ComponentType {
 		return bits;
 	}
 
+	/**
+	 * @param bits component bits
+	 * @param word 0 for component types 0 to 63, 1 for 64 to 127
+	 * @return The requested word of the bits, for the long masks of {@link Entity} and {@link Family}.
+	 */
+	static long getMask (Bits bits, int word) {
+		long mask = 0L;
+		int start = word << 6;
+
+		for (int i = bits.nextSetBit(start); i >= 0 && i < start + 64; i = bits.nextSetBit(i + 1)) {
+			mask |= 1L << (i - start);
+		}
+
+		return mask;
+	}
+
+	/**
+	 * Hashes the set bits only, so equal sets hash the same regardless of their capacity. Used instead of
+	 * {@link Bits#hashCode()}, which reads past its last word when the highest set bit is the last bit of a word.
+	 */
+	static int hashBits (Bits bits) {
+		int hash = 0;
+
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+			hash = 31 * hash + i;
+		}
+
+		return hash;
+	}
+
 	@Override
 	public int hashCode () {
 		return index;
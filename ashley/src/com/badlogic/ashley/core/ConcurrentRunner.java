@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Runs tasks concurrently, the first one on the calling thread and the others on an {@link Executor}, and waits for all of them
+ * before returning. The first failure is rethrown once every task is done. Not available on GWT.
+ */
+class ConcurrentRunner {
+	private static ForkJoinPool defaultPool;
+
+	private final Executor executor;
+	private final Array<Task> tasks = new Array<Task>(false, 8, Task.class);
+	private final Object lock = new Object();
+	private final Waiter waiter = new Waiter();
+	private int running;
+	private Throwable failure;
+
+	ConcurrentRunner (Executor executor) {
+		this.executor = executor;
+	}
+
+	void run (Array<? extends Runnable> runnables) {
+		int size = runnables.size;
+
+		if (size == 0) {
+			return;
+		}
+
+		if (size == 1) {
+			runnables.first().run();
+			return;
+		}
+
+		while (tasks.size < size - 1) {
+			tasks.add(new Task());
+		}
+
+		synchronized (lock) {
+			running = size - 1;
+			failure = null;
+		}
+
+		Throwable callerFailure = null;
+		int submitted = 1;
+
+		try {
+			for (; submitted < size; ++submitted) {
+				Task task = tasks.get(submitted - 1);
+				task.runnable = runnables.get(submitted);
+				executor.execute(task);
+			}
+		}
+		catch (Throwable t) {
+			// E.g. a shut down executor, the tasks it did not take will never count down.
+			callerFailure = t;
+
+			synchronized (lock) {
+				running -= size - submitted;
+			}
+		}
+
+		if (callerFailure == null) {
+			try {
+				runnables.first().run();
+			}
+			catch (Throwable t) {
+				callerFailure = t;
+			}
+		}
+
+		boolean interrupted = false;
+		Throwable taskFailure;
+
+		// Tasks may still be using shared state, wait for all of them whatever happens.
+		while (true) {
+			try {
+				// Lets a pool we are running on add a thread meanwhile, runners may be nested on the same pool.
+				ForkJoinPool.managedBlock(waiter);
+				break;
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		synchronized (lock) {
+			taskFailure = failure;
+			failure = null;
+		}
+
+		for (int i = 0; i < size - 1; ++i) {
+			tasks.get(i).runnable = null;
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		rethrow(callerFailure != null ? callerFailure : taskFailure);
+	}
+
+	/**
+	 * @return The pool shared by the engines and worlds created without an executor, with one thread per available processor.
+	 * Its threads are daemon threads, so it never needs to be shut down.
+	 */
+	static synchronized ForkJoinPool getDefaultPool () {
+		if (defaultPool == null) {
+			defaultPool = new ForkJoinPool();
+		}
+
+		return defaultPool;
+	}
+
+	private void done (Throwable t) {
+		synchronized (lock) {
+			if (t != null && failure == null) {
+				failure = t;
+			}
+
+			if (--running == 0) {
+				lock.notifyAll();
+			}
+		}
+	}
+
+	private static void rethrow (Throwable t) {
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException)t;
+		}
+		if (t instanceof Error) {
+			throw (Error)t;
+		}
+		if (t != null) {
+			throw new RuntimeException(t);
+		}
+	}
+
+	private class Waiter implements ForkJoinPool.ManagedBlocker {
+		@Override
+		public boolean block () throws InterruptedException {
+			synchronized (lock) {
+				while (running > 0) {
+					lock.wait();
+				}
+			}
+
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable () {
+			synchronized (lock) {
+				return running == 0;
+			}
+		}
+	}
+
+	private class Task implements Runnable {
+		Runnable runnable;
+
+		@Override
+		public void run () {
+			Throwable t = null;
+
+			try {
+				runnable.run();
+			}
+			catch (Throwable e) {
+				t = e;
+			}
+
+			done(t);
+		}
+	}
+}
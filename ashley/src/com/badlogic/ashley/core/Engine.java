@@ -17,10 +17,14 @@
 package com.badlogic.ashley.core;
 
 import com.badlogic.ashley.core.ComponentOperationHandler.BooleanInformer;
+import com.badlogic.ashley.core.ComponentOperationHandler.ComponentAccessValidator;
+import com.badlogic.ashley.core.ComponentOperationHandler.BufferedComponentListener;
+import com.badlogic.ashley.core.ComponentOperationHandler.ComponentListener;
+import com.badlogic.ashley.core.EntityManager.BatchRemovalListener;
 import com.badlogic.ashley.core.SystemManager.SystemListener;
-import com.badlogic.ashley.signals.Listener;
-import com.badlogic.ashley.signals.Signal;
 import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectIntMap;
 import com.badlogic.gdx.utils.reflect.ClassReflection;
 import com.badlogic.gdx.utils.reflect.ReflectionException;
 
@@ -42,15 +46,20 @@ import com.badlogic.gdx.utils.reflect.ReflectionException;
  */
 public class Engine {
 	private static Family empty = Family.all().get();
-	
-	private final Listener<Entity> componentAdded = new ComponentListener();
-	private final Listener<Entity> componentRemoved = new ComponentListener();
+	private static final int PLAYBACK_CREATED = 1;
+	private static final int PLAYBACK_ADDED = 2;
+	private static final int PLAYBACK_REMOVED = 4;
+	private static final int PLAYBACK_DESTROYED = 8;
 	
 	private SystemManager systemManager = new SystemManager(new EngineSystemListener());
 	private EntityManager entityManager = new EntityManager(new EngineEntityListener());
-	private ComponentOperationHandler componentOperationHandler = new ComponentOperationHandler(new EngineDelayedInformer());
+	private ComponentOperationHandler componentOperationHandler = new ComponentOperationHandler(new EngineDelayedInformer(), new EngineComponentListener());
 	private FamilyManager familyManager = new FamilyManager(entityManager.getEntities());	
 	private boolean updating;
+	private Array<Entity> playbackEntities = new Array<Entity>(false, 16);
+	private ObjectIntMap<Entity> playbackFlags = new ObjectIntMap<Entity>();
+	private Array<BufferedComponentMapper<?>> bufferedMappers = new Array<BufferedComponentMapper<?>>(false, 4);
+	private Array<EventQueue<?>> eventQueues = new Array<EventQueue<?>>(false, 4);
 
 	/**
 	 * Creates a new Entity object.
@@ -72,6 +81,56 @@ public class Engine {
 		}
 	}
 
+	/** Gives back a component the engine created and no longer uses, a {@link PooledEngine} returns it to its pool. */
+	void freeComponent (Component component) {
+	}
+
+	/** Creates a component for an {@link EntityTemplate}, with the factory if there is one. */
+	Component createComponent (Class<? extends Component> componentType, EntityTemplate.ComponentFactory<Component> factory) {
+		return factory != null ? factory.create() : createComponent(componentType);
+	}
+
+	/**
+	 * Creates entities that all have a new component of each of the given types and adds them to this Engine, like
+	 * {@link #instantiate(EntityTemplate, int)} with a template of these types.
+	 * @param count number of entities to create.
+	 * @param componentTypes the component types of every entity.
+	 * @return The created entities, in creation order.
+	 */
+	@SafeVarargs
+	public final ImmutableArray<Entity> createEntities (int count, Class<? extends Component>... componentTypes) {
+		return instantiate(new EntityTemplate(componentTypes), count);
+	}
+
+	/**
+	 * Creates an entity from the {@link EntityTemplate} and adds it to this Engine. The families of the template are resolved
+	 * once per engine, so adding the entity is a lookup.
+	 * @return The created entity.
+	 */
+	public Entity instantiate (EntityTemplate template) {
+		Entity entity = createEntityFrom(template);
+		addEntity(entity);
+		return entity;
+	}
+
+	/**
+	 * Creates entities from the {@link EntityTemplate} and adds them to this Engine. As they all share the same component
+	 * types, each family receives them in a single append and entity listeners are notified listener by listener. While the
+	 * engine is updating, the entities are added the usual delayed way.
+	 * @param count number of entities to create.
+	 * @return The created entities, in creation order.
+	 */
+	public ImmutableArray<Entity> instantiate (EntityTemplate template, int count) {
+		Array<Entity> entities = new Array<Entity>(true, Math.max(count, 1), Entity.class);
+
+		for (int i = 0; i < count; ++i) {
+			entities.add(createEntityFrom(template));
+		}
+
+		addEntities(entities);
+		return new ImmutableArray<Entity>(entities);
+	}
+
 	/**
 	 * Adds an entity to this Engine.
 	 * This will throw an IllegalArgumentException if the given entity
@@ -106,6 +165,97 @@ public class Engine {
 		entityManager.removeAllEntities(delayed);
 	}
 
+	/**
+	 * Removes the entity from this Engine right away so that another engine can take it over. Listeners are notified as for a
+	 * removal, but the entity and its components are left as they are.
+	 */
+	void detachEntity(Entity entity) {
+		if (updating || familyManager.notifying()) {
+			throw new IllegalStateException("Cannot detach an entity from an Engine that is updating.");
+		}
+
+		entity.migrating = true;
+
+		try {
+			entityManager.removeEntity(entity, false);
+		}
+		finally {
+			entity.migrating = false;
+		}
+	}
+
+	/**
+	 * Applies and clears the commands recorded in the {@link EntityCommandBuffer}. Component changes are applied in recording
+	 * order, then every touched entity is added, removed or has its families updated once. Changes are applied right away, even
+	 * while the engine is updating, so call this at a point where no system is iterating over entities.
+	 */
+	@SuppressWarnings("unchecked")
+	public void playback(EntityCommandBuffer buffer) {
+		if (familyManager.notifying()) {
+			throw new IllegalStateException("Cannot play back an EntityCommandBuffer while notifying entity listeners.");
+		}
+
+		byte[] commands = buffer.commands;
+		Entity[] entities = buffer.entities;
+		long[] handles = buffer.handles;
+		Object[] arguments = buffer.arguments;
+
+		for (int i = 0; i < buffer.size; ++i) {
+			Entity entity = entities[i];
+			int flags = 0;
+
+			// The entity was removed, and maybe recycled, since the command was recorded.
+			if (entity == null) {
+				entity = getEntity(handles[i]);
+
+				if (entity == null) {
+					continue;
+				}
+			} else if (handles[i] != Entity.NO_HANDLE && entity.getHandle() != handles[i]) {
+				continue;
+			}
+
+			switch (commands[i]) {
+				case EntityCommandBuffer.CREATE:
+					flags = PLAYBACK_CREATED;
+					break;
+				case EntityCommandBuffer.ADD:
+					flags = entity.addInternal((Component)arguments[i]) ? PLAYBACK_ADDED : 0;
+					break;
+				case EntityCommandBuffer.REMOVE:
+					flags = entity.removeInternal((Class<? extends Component>)arguments[i]) != null ? PLAYBACK_REMOVED : 0;
+					break;
+				case EntityCommandBuffer.DESTROY:
+					flags = PLAYBACK_DESTROYED;
+					break;
+				default:
+					throw new AssertionError("Unexpected EntityCommandBuffer command");
+			}
+
+			int previousFlags = playbackFlags.get(entity, -1);
+
+			if (previousFlags < 0) {
+				playbackEntities.add(entity);
+				previousFlags = 0;
+			}
+
+			playbackFlags.put(entity, previousFlags | flags);
+		}
+
+		buffer.clear();
+
+		try {
+			for (int i = 0; i < playbackEntities.size; ++i) {
+				Entity entity = playbackEntities.get(i);
+				playbackEntity(entity, playbackFlags.get(entity, 0));
+			}
+		}
+		finally {
+			playbackEntities.clear();
+			playbackFlags.clear();
+		}
+	}
+
 	/**
 	 * Returns an {@link ImmutableArray} of {@link Entity} that is managed by the the Engine
 	 *  but cannot be used to modify the state of the Engine. This Array is not Immutable in
@@ -133,6 +283,15 @@ public class Engine {
 		return entityManager.getEntities();
 	}
 
+	/**
+	 * Returns the {@link Entity} identified by the given handle in O(1), see {@link Entity#getHandle()}. Handles only pack an
+	 * index and a generation, so a handle obtained from another engine may resolve to an unrelated entity of this one.
+	 * @return The entity, or null if the handle is stale.
+	 */
+	public Entity getEntity (long handle) {
+		return entityManager.getEntity(handle);
+	}
+
 	/**
 	 * Adds the {@link EntitySystem} to this Engine.
 	 * If the Engine already had a system of the same class,
@@ -178,6 +337,29 @@ public class Engine {
 		return familyManager.getEntitiesFor(family);
 	}
 
+	/**
+	 * Returns the components of the specified type of all the entities of this Engine, stored contiguously, which makes scanning
+	 * them cheaper than looking them up entity by entity. Returns the same instance every time for the same type.
+	 * <ul>
+	 * <li>The component at position {@code i} belongs to the entity at position {@code i} of
+	 * {@link #getEntitiesWith(Class)}.</li>
+	 * <li>Removing a component of the type moves the last one into its place, don't add or remove components of the type while
+	 * iterating.</li>
+	 * </ul>
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Component> ImmutableArray<T> getComponents(Class<T> componentClass){
+		return (ImmutableArray<T>)getComponentStore(componentClass).getComponents();
+	}
+
+	/**
+	 * Returns the entities of this Engine having a component of the specified type, in the order of
+	 * {@link #getComponents(Class)}. Returns the same instance every time for the same type.
+	 */
+	public ImmutableArray<Entity> getEntitiesWith(Class<? extends Component> componentClass){
+		return getComponentStore(componentClass).getEntities();
+	}
+
 	/**
 	 * Adds an {@link EntityListener}.
 	 *
@@ -231,19 +413,15 @@ public class Engine {
 		}
 		
 		updating = true;
-		ImmutableArray<EntitySystem> systems = systemManager.getSystems();
 		try {
-			for (int i = 0; i < systems.size(); ++i) {
-				EntitySystem system = systems.get(i);
-				
-				if (system.checkProcessing()) {
-					system.update(deltaTime);
-				}
-	
-				while(componentOperationHandler.hasOperationsToProcess() || entityManager.hasPendingOperations()) {
-					componentOperationHandler.processOperations();
-					entityManager.processPendingOperations();
-				}
+			updateSystems(systemManager.getSystems(), deltaTime);
+
+			for (int i = 0; i < bufferedMappers.size; ++i) {
+				bufferedMappers.get(i).swap();
+			}
+
+			for (int i = 0; i < eventQueues.size; ++i) {
+				eventQueues.get(i).swap();
 			}
 		}
 		finally {
@@ -251,26 +429,234 @@ public class Engine {
 		}	
 	}
 	
+	/** Updates the systems one after the other, in priority order, processing their operations after each of them. */
+	void updateSystems(ImmutableArray<EntitySystem> systems, float deltaTime) {
+		for (int i = 0; i < systems.size(); ++i) {
+			EntitySystem system = systems.get(i);
+			
+			if (system.checkProcessing()) {
+				system.update(deltaTime);
+			}
+
+			processSystemOperations(system);
+		}
+	}
+	
+	/** Plays back the command buffer of the system, then processes the operations delayed while it was updating. */
+	void processSystemOperations(EntitySystem system) {
+		if (system.commandBuffer != null && !system.commandBuffer.isEmpty()) {
+			playback(system.commandBuffer);
+		}
+
+		while(componentOperationHandler.hasOperationsToProcess() || entityManager.hasPendingOperations()) {
+			// Batch listeners are notified once per family for all the delayed component changes.
+			familyManager.beginBatch();
+			try {
+				componentOperationHandler.processOperations();
+			}
+			finally {
+				familyManager.endBatch();
+			}
+			entityManager.processPendingOperations();
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	<T> EventQueue<T> getEventQueue(Class<T> eventClass) {
+		for (int i = 0; i < eventQueues.size; ++i) {
+			EventQueue<?> queue = eventQueues.get(i);
+
+			if (queue.eventClass == eventClass) {
+				return (EventQueue<T>)queue;
+			}
+		}
+
+		EventQueue<T> queue = new EventQueue<T>(eventClass);
+		eventQueues.add(queue);
+		return queue;
+	}
+	
+	@SuppressWarnings("unchecked")
+	<T extends BufferedComponent<T>> BufferedComponentMapper<T> getBufferedMapper(Class<T> componentClass) {
+		ComponentType componentType = ComponentType.getFor(componentClass);
+
+		for (int i = 0; i < bufferedMappers.size; ++i) {
+			BufferedComponentMapper<?> mapper = bufferedMappers.get(i);
+
+			if (mapper.componentType == componentType) {
+				return (BufferedComponentMapper<T>)mapper;
+			}
+		}
+
+		BufferedComponentMapper<T> mapper = new BufferedComponentMapper<T>(componentClass, this);
+		bufferedMappers.add(mapper);
+		componentOperationHandler.bufferedListener = new EngineBufferedComponentListener();
+		ImmutableArray<Entity> entities = entityManager.getEntities();
+
+		for (int i = 0; i < entities.size(); ++i) {
+			mapper.prepare(entities.get(i));
+		}
+
+		return mapper;
+	}
+	
+	private ComponentStore getComponentStore(Class<? extends Component> componentClass) {
+		return entityManager.getComponentStorage().get(ComponentType.getIndexFor(componentClass));
+	}
+	
+	private void prepareBuffers(Entity entity) {
+		for (int i = 0; i < bufferedMappers.size; ++i) {
+			bufferedMappers.get(i).prepare(entity);
+		}
+	}
+	
+	private void releaseBuffers(Entity entity) {
+		for (int i = 0; i < bufferedMappers.size; ++i) {
+			bufferedMappers.get(i).release(entity);
+		}
+	}
+	
+	void setAccessValidator(ComponentAccessValidator validator) {
+		componentOperationHandler.accessValidator = validator;
+	}
+	
+	private void playbackEntity(Entity entity, int flags) {
+		boolean created = (flags & PLAYBACK_CREATED) != 0;
+
+		if ((flags & PLAYBACK_DESTROYED) != 0) {
+			// Entities created and destroyed by the same buffer never make it into the engine.
+			if (!created) {
+				entityManager.removeEntity(entity, false);
+			}
+			return;
+		}
+
+		boolean added = (flags & PLAYBACK_ADDED) != 0;
+		boolean removed = (flags & PLAYBACK_REMOVED) != 0;
+
+		if (created) {
+			entityManager.addEntity(entity, false);
+		} else if (entity.componentOperationHandler == componentOperationHandler) {
+			if (added || removed) {
+				componentsChangedInternal(entity, -1);
+			}
+		} else if (entity.componentOperationHandler != null) {
+			// Registered with another engine, let it update the entity the way it always does.
+			if (added) {
+				entity.componentOperationHandler.add(entity, -1);
+			}
+			if (removed) {
+				entity.componentOperationHandler.remove(entity, -1);
+			}
+			return;
+		}
+
+		if (added) {
+			entity.notifyComponentAdded();
+		}
+		if (removed) {
+			entity.notifyComponentRemoved();
+		}
+	}
+	
+	private Entity createEntityFrom(EntityTemplate template) {
+		Entity entity = createEntity();
+		int numComponents = template.componentTypeIndices.size;
+
+		for (int i = 0; i < numComponents; ++i) {
+			Class<? extends Component> componentType = template.getComponentTypes().get(i);
+			Component component = createComponent(componentType, template.factories.get(i));
+
+			if (component == null) {
+				throw new IllegalArgumentException("Cannot create component of type " + componentType.getName());
+			}
+
+			EntityTemplate.ComponentInitializer<Component> initializer = template.initializers.get(i);
+
+			if (initializer != null) {
+				initializer.initialize(component);
+			}
+
+			entity.addInternal(component, template.componentTypeIndices.get(i));
+		}
+
+		// Lets the family manager skip looking up the signature of the new entity.
+		entity.signature = template.getSignature(familyManager);
+		return entity;
+	}
+
+	void addEntities(Array<Entity> entities) {
+		if (updating || familyManager.notifying()) {
+			for (int i = 0; i < entities.size; ++i) {
+				entityManager.addEntity(entities.get(i), true);
+			}
+		} else {
+			entityManager.registerEntities(entities);
+			addEntitiesInternal(entities);
+		}
+	}
+
+	/** Called when new entities sharing the same component types are added together, instead of addEntityInternal(). */
+	protected void addEntitiesInternal(Array<Entity> entities) {
+		for (int i = 0; i < entities.size; ++i) {
+			Entity entity = entities.get(i);
+			entity.componentOperationHandler = componentOperationHandler;
+			prepareBuffers(entity);
+		}
+
+		familyManager.addEntities(entities);
+	}
+	
 	protected void addEntityInternal(Entity entity) {
-		entity.componentAdded.add(componentAdded);
-		entity.componentRemoved.add(componentRemoved);
 		entity.componentOperationHandler = componentOperationHandler;
+		prepareBuffers(entity);
 		
 		familyManager.updateFamilyMembership(entity);
 	}
 	
 	protected void removeEntityInternal(Entity entity) {
 		familyManager.updateFamilyMembership(entity);
+		releaseBuffers(entity);
 
-		entity.componentAdded.remove(componentAdded);
-		entity.componentRemoved.remove(componentRemoved);
 		entity.componentOperationHandler = null;
 	}
+
+	/** Called when entities are removed together, instead of removeEntityInternal(). */
+	protected void removeEntitiesInternal(Array<Entity> entities) {
+		familyManager.removeEntities(entities);
+
+		for (int i = 0; i < entities.size; ++i) {
+			Entity entity = entities.get(i);
+			releaseBuffers(entity);
+			entity.componentOperationHandler = null;
+		}
+	}
+
+	protected void componentsChangedInternal(Entity entity, int componentTypeIndex) {
+		prepareBuffers(entity);
+		familyManager.updateFamilyMembership(entity, componentTypeIndex);
+	}
+	
+	private class EngineComponentListener implements ComponentListener {
+		@Override
+		public void componentChanged(Entity entity, int componentTypeIndex) {
+			componentsChangedInternal(entity, componentTypeIndex);
+		}
+	}
 	
-	private class ComponentListener implements Listener<Entity> {
+	private class EngineBufferedComponentListener implements BufferedComponentListener {
 		@Override
-		public void receive(Signal<Entity> signal, Entity object) {
-			familyManager.updateFamilyMembership(object);
+		public void bufferedComponentRemoved (BufferedComponent<?> component) {
+			ComponentType componentType = ComponentType.getFor(component.getClass());
+
+			for (int i = 0; i < bufferedMappers.size; ++i) {
+				BufferedComponentMapper<?> mapper = bufferedMappers.get(i);
+
+				if (mapper.componentType == componentType) {
+					mapper.release(component);
+					return;
+				}
+			}
 		}
 	}
 	
@@ -286,7 +672,7 @@ public class Engine {
 		}
 	}
 	
-	private class EngineEntityListener implements EntityListener {
+	private class EngineEntityListener implements EntityListener, BatchRemovalListener {
 		@Override
 		public void entityAdded (Entity entity) {
 			addEntityInternal(entity);
@@ -296,6 +682,11 @@ public class Engine {
 		public void entityRemoved (Entity entity) {
 			removeEntityInternal(entity);
 		}
+
+		@Override
+		public void entitiesRemoved (Array<Entity> entities) {
+			removeEntitiesInternal(entities);
+		}
 	}
 	
 	private class EngineDelayedInformer implements BooleanInformer {
@@ -17,16 +17,19 @@
 package com.badlogic.ashley.core;
 
 import com.badlogic.ashley.signals.Signal;
-import com.badlogic.ashley.utils.Bag;
 import com.badlogic.ashley.utils.ImmutableArray;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Bits;
+import com.badlogic.gdx.utils.IntArray;
 
 /**
  * Simple containers of {@link Component}s that give them "data". The component's data is then processed by {@link EntitySystem}s.
  * @author Stefan Bachmann
  */
 public class Entity {
+	/** Handle of entities that are not registered with an {@link Engine}. No registered entity ever has this handle. */
+	public static final long NO_HANDLE = 0L;
+
 	/** A flag that can be used to bit mask this entity. Up to the user to manage. */
 	public int flags;
 	/** Will dispatch an event when a component is added. */
@@ -36,17 +39,34 @@ public class Entity {
 
 	boolean scheduledForRemoval;
 	boolean removing;
+	/** Set while the entity is removed from an engine to be added to another one, see {@link ShardedWorld#migrate}. */
+	boolean migrating;
+	int index = -1;
+	int generation;
 	ComponentOperationHandler componentOperationHandler;
+	ComponentOperationHandler.ComponentOperation componentOperation;
+	ArchetypeChunk archetypeChunk;
+	int archetypeRow = -1;
+	FamilyManager.Signature signature;
+	/** Component types below {@link ComponentType#MASK_SIZE}, mirrors componentBits so families can match without it. */
+	long componentMask0;
+	long componentMask1;
+
+	/** Stores of the engine the entity is registered with, which hold its components meanwhile, null if not registered. */
+	ComponentStorage storage;
+	/** Component type index of every component of componentsArray, at the same position. */
+	final IntArray componentTypeIndices;
 
-	private Bag<Component> components;
 	private Array<Component> componentsArray;
 	private ImmutableArray<Component> immutableComponentsArray;
 	private Bits componentBits;
 	private Bits familyBits;
+	private EntityEdit edit;
 
 	/** Creates an empty Entity. */
 	public Entity () {
-		components = new Bag<Component>();
+		// Components are looked up in the stores of the engine, the entity only keeps a list of them.
+		componentTypeIndices = new IntArray(false, 4);
 		componentsArray = new Array<Component>(false, 16);
 		immutableComponentsArray = new ImmutableArray<Component>(componentsArray);
 		componentBits = new Bits();
@@ -62,9 +82,13 @@ public class Entity {
 	 * @return The Entity for easy chaining
 	 */
 	public Entity add (Component component) {
+		if (validatingAccess()) {
+			checkAccess(ComponentType.getIndexFor(component.getClass()), true);
+		}
+
 		if (addInternal(component)) {
 			if (componentOperationHandler != null) {
-				componentOperationHandler.add(this);
+				componentOperationHandler.add(this, ComponentType.getIndexFor(component.getClass()));
 			}
 			else {
 				notifyComponentAdded();
@@ -91,23 +115,34 @@ public class Entity {
 	public <T extends Component> T remove (Class<T> componentClass) {
 		ComponentType componentType = ComponentType.getFor(componentClass);
 		int componentTypeIndex = componentType.getIndex();
+		checkAccess(componentTypeIndex, true);
 		
-		if(components.isIndexWithinBounds(componentTypeIndex)){
-			Component removeComponent = components.get(componentTypeIndex);
-	
-			if (removeComponent != null && removeInternal(componentClass) != null) {
-				if (componentOperationHandler != null) {
-					componentOperationHandler.remove(this);
-				}
-				else {
-					notifyComponentRemoved();
-				}
+		Component removeComponent = removeInternal(componentClass);
+
+		if (removeComponent != null) {
+			if (componentOperationHandler != null) {
+				componentOperationHandler.remove(this, componentTypeIndex);
+			}
+			else {
+				notifyComponentRemoved();
 			}
-	
-			return (T) removeComponent;
 		}
-		
-		return null;
+
+		return (T) removeComponent;
+	}
+
+	/**
+	 * Starts a set of component changes that are applied right away but only notified upon {@link EntityEdit#commit()}, with a
+	 * single family membership update. Listeners never see the intermediate states, e.g.
+	 * {@code entity.edit().add(a).add(b).remove(C.class).commit()}.
+	 * @return The edit of this Entity, the same instance is reused for every edit.
+	 */
+	public EntityEdit edit () {
+		if (edit == null) {
+			edit = new EntityEdit(this);
+		}
+
+		return edit;
 	}
 
 	/** Removes all the {@link Component}'s from the Entity. */
@@ -141,19 +176,32 @@ public class Entity {
 	@SuppressWarnings("unchecked")
 	<T extends Component> T getComponent (ComponentType componentType) {
 		int componentTypeIndex = componentType.getIndex();
+		checkAccess(componentTypeIndex, false);
+		return (T)getComponent(componentTypeIndex);
+	}
 
-		if (componentTypeIndex < components.getCapacity()) {
-			return (T)components.get(componentType.getIndex());
-		} else {
+	Component getComponent (int componentTypeIndex) {
+		ComponentStorage storage = this.storage;
+
+		if (storage != null) {
+			return storage.get(componentTypeIndex, index);
+		}
+
+		if (!componentBits.get(componentTypeIndex)) {
 			return null;
 		}
+
+		return componentsArray.get(componentTypeIndices.indexOf(componentTypeIndex));
 	}
 
 	/**
 	 * @return Whether or not the Entity has a {@link Component} for the specified class.
 	 */
 	boolean hasComponent (ComponentType componentType) {
-		return componentBits.get(componentType.getIndex());
+		int componentTypeIndex = componentType.getIndex();
+		checkAccess(componentTypeIndex, false);
+		ComponentStorage storage = this.storage;
+		return storage != null ? storage.has(componentTypeIndex, index) : componentBits.get(componentTypeIndex);
 	}
 
 	/**
@@ -168,6 +216,20 @@ public class Entity {
 		return familyBits;
 	}
 
+	/** @return Whether component accesses are checked by the engine this Entity belongs to. */
+	boolean validatingAccess () {
+		return componentOperationHandler != null && componentOperationHandler.accessValidator != null;
+	}
+
+	/** Lets the engine this Entity belongs to check the access to components of the given type, if it validates accesses. */
+	void checkAccess (int componentTypeIndex, boolean write) {
+		ComponentOperationHandler handler = componentOperationHandler;
+
+		if (handler != null && handler.accessValidator != null) {
+			handler.accessValidator.checkAccess(this, componentTypeIndex, write);
+		}
+	}
+
 	/**
 	 * @param component
 	 * @return whether or not the component was added.
@@ -184,12 +246,25 @@ public class Entity {
 			removeInternal(componentClass);
 		}
 
-		int componentTypeIndex = ComponentType.getIndexFor(componentClass);
-		components.set(componentTypeIndex, component);
+		addInternal(component, ComponentType.getIndexFor(componentClass));
+		return true;
+	}
+
+	/** Stores a component whose type index is already known, the entity must not have a component of that type. */
+	void addInternal (Component component, int componentTypeIndex) {
 		componentsArray.add(component);
+		componentTypeIndices.add(componentTypeIndex);
 		componentBits.set(componentTypeIndex);
-		
-		return true;
+
+		if (storage != null) {
+			storage.get(componentTypeIndex).set(this, component);
+		}
+
+		if (componentTypeIndex < 64) {
+			componentMask0 |= 1L << componentTypeIndex;
+		} else if (componentTypeIndex < ComponentType.MASK_SIZE) {
+			componentMask1 |= 1L << (componentTypeIndex - 64);
+		}
 	}
 
 	/**
@@ -199,17 +274,33 @@ public class Entity {
 	Component removeInternal (Class<? extends Component> componentClass) {
 		ComponentType componentType = ComponentType.getFor(componentClass);
 		int componentTypeIndex = componentType.getIndex();
-		Component removeComponent = components.get(componentTypeIndex);
 
-		if (removeComponent != null) {
-			components.set(componentTypeIndex, null);
-			componentsArray.removeValue(removeComponent, true);
-			componentBits.clear(componentTypeIndex);
-			
-			return removeComponent;
+		if (!componentBits.get(componentTypeIndex)) {
+			return null;
+		}
+
+		// Both lists are unordered, removing the same position from them keeps them in step.
+		int position = componentTypeIndices.indexOf(componentTypeIndex);
+		Component removeComponent = componentsArray.removeIndex(position);
+		componentTypeIndices.removeIndex(position);
+		componentBits.clear(componentTypeIndex);
+
+		if (storage != null) {
+			storage.get(componentTypeIndex).remove(this);
+		}
+
+		if (componentTypeIndex < 64) {
+			componentMask0 &= ~(1L << componentTypeIndex);
+		} else if (componentTypeIndex < ComponentType.MASK_SIZE) {
+			componentMask1 &= ~(1L << (componentTypeIndex - 64));
+		}
+
+		if (removeComponent instanceof BufferedComponent && componentOperationHandler != null
+			&& componentOperationHandler.bufferedListener != null) {
+			componentOperationHandler.bufferedListener.bufferedComponentRemoved((BufferedComponent<?>)removeComponent);
 		}
 
-		return null;
+		return removeComponent;
 	}
 	
 	void notifyComponentAdded() {
@@ -220,6 +311,35 @@ public class Entity {
 		componentRemoved.dispatch(this);
 	}
 
+	/**
+	 * @return The index assigned to this entity by the {@link Engine} it is registered with, or -1 if it isn't registered.
+	 *         Indices are small and dense, which makes them suitable for indexing arrays, but they are reused once the entity
+	 *         is removed. Use {@link #getHandle()} to keep references across frames.
+	 */
+	public int getIndex () {
+		return index;
+	}
+
+	/**
+	 * @return A handle packing this entity's index with a generation that changes every time the index is reused, or
+	 *         {@link #NO_HANDLE} if it isn't registered with an {@link Engine}. Use {@link Engine#getEntity(long)} to resolve
+	 *         it with the engine the entity is registered with, stale handles of removed (or pooled and reused) entities
+	 *         resolve to null.
+	 */
+	public long getHandle () {
+		return index < 0 ? NO_HANDLE : ((long)generation << 32) | index;
+	}
+
+	/** @return The entity index packed in the given handle. */
+	public static int getIndex (long handle) {
+		return (int)handle;
+	}
+
+	/** @return The generation packed in the given handle. */
+	public static int getGeneration (long handle) {
+		return (int)(handle >>> 32);
+	}
+
 	/** @return true if the entity is scheduled to be removed */
 	public boolean isScheduledForRemoval () {
 		return scheduledForRemoval;
@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.core;
+
+/**
+ * Records structural changes (entity creation and destruction, component additions and removals) to be applied later, in bulk,
+ * via {@link Engine#playback(EntityCommandBuffer)}. Nothing is applied while recording, so a buffer can be filled from any
+ * thread, typically one buffer per worker, as long as the buffer is handed over to the engine thread before playback.
+ * <ul>
+ * <li>Entities created by the buffer are not registered with any engine until playback, components can be recorded for them
+ * right away.</li>
+ * <li>During playback every touched entity gets a single family membership update, and its component signals are dispatched
+ * at most once each.</li>
+ * <li>Commands keep the {@link Entity#getHandle() handle} the entity had when they were recorded. Commands for an entity that
+ * has been removed from its engine since, or recycled by a {@link PooledEngine}, are dropped upon playback.</li>
+ * <li>Off the engine thread, the handle of an entity may change while it is read. Take the handles on the engine thread and
+ * record with the overloads taking a handle, which resolve the entity upon playback and drop the command if it is stale.</li>
+ * </ul>
+ */
+public class EntityCommandBuffer {
+	static final byte CREATE = 0;
+	static final byte ADD = 1;
+	static final byte REMOVE = 2;
+	static final byte DESTROY = 3;
+
+	byte[] commands;
+	Entity[] entities;
+	/**
+	 * Handles of the entities when the commands were recorded, {@link Entity#NO_HANDLE} for unregistered entities. Commands
+	 * recorded with a handle only have no entity.
+	 */
+	long[] handles;
+	Object[] arguments;
+	int size;
+
+	/** Creates a new EntityCommandBuffer with room for 16 commands. */
+	public EntityCommandBuffer () {
+		this(16);
+	}
+
+	/**
+	 * Creates a new EntityCommandBuffer.
+	 * @param capacity number of commands the buffer can hold before growing.
+	 */
+	public EntityCommandBuffer (int capacity) {
+		commands = new byte[capacity];
+		entities = new Entity[capacity];
+		handles = new long[capacity];
+		arguments = new Object[capacity];
+	}
+
+	/**
+	 * Records the creation of an entity. The returned entity will be added to the engine the buffer is played back on.
+	 * @return The new, not yet registered, {@link Entity}.
+	 */
+	public Entity createEntity () {
+		Entity entity = new Entity();
+		record(CREATE, entity, Entity.NO_HANDLE, null);
+		return entity;
+	}
+
+	/** Records the addition of the component to the entity, replacing any component of the same type upon playback. */
+	public EntityCommandBuffer add (Entity entity, Component component) {
+		record(ADD, entity, entity.getHandle(), component);
+		return this;
+	}
+
+	/**
+	 * Records the addition of the component to the entity with the given {@link Entity#getHandle() handle}, dropped upon
+	 * playback if the handle is stale by then.
+	 */
+	public EntityCommandBuffer add (long handle, Component component) {
+		record(ADD, null, handle, component);
+		return this;
+	}
+
+	/** Records the removal of the component of the given type from the entity. */
+	public EntityCommandBuffer remove (Entity entity, Class<? extends Component> componentClass) {
+		record(REMOVE, entity, entity.getHandle(), componentClass);
+		return this;
+	}
+
+	/**
+	 * Records the removal of the component of the given type from the entity with the given handle, see
+	 * {@link #add(long, Component)}.
+	 */
+	public EntityCommandBuffer remove (long handle, Class<? extends Component> componentClass) {
+		record(REMOVE, null, handle, componentClass);
+		return this;
+	}
+
+	/** Records the removal of the entity from the engine the buffer is played back on. */
+	public void destroy (Entity entity) {
+		record(DESTROY, entity, entity.getHandle(), null);
+	}
+
+	/** Records the removal of the entity with the given handle, see {@link #add(long, Component)}. */
+	public void destroy (long handle) {
+		record(DESTROY, null, handle, null);
+	}
+
+	/**
+	 * Moves the commands recorded by the other buffer to the end of this one, leaving the other buffer empty. Neither buffer may
+	 * be recorded to concurrently.
+	 */
+	public EntityCommandBuffer append (EntityCommandBuffer other) {
+		if (other == this || other.size == 0) {
+			return this;
+		}
+
+		if (size + other.size > commands.length) {
+			resize(Math.max(size + other.size, (int)(size * 1.75f)));
+		}
+
+		System.arraycopy(other.commands, 0, commands, size, other.size);
+		System.arraycopy(other.entities, 0, entities, size, other.size);
+		System.arraycopy(other.handles, 0, handles, size, other.size);
+		System.arraycopy(other.arguments, 0, arguments, size, other.size);
+		size += other.size;
+		other.clear();
+		return this;
+	}
+
+	/** @return Number of recorded commands. */
+	public int size () {
+		return size;
+	}
+
+	/** @return Whether the buffer contains no commands. */
+	public boolean isEmpty () {
+		return size == 0;
+	}
+
+	/** Discards all recorded commands. */
+	public void clear () {
+		for (int i = 0; i < size; ++i) {
+			entities[i] = null;
+			arguments[i] = null;
+		}
+
+		size = 0;
+	}
+
+	private void record (byte command, Entity entity, long handle, Object argument) {
+		if (size == commands.length) {
+			resize(Math.max(8, (int)(size * 1.75f)));
+		}
+
+		commands[size] = command;
+		entities[size] = entity;
+		handles[size] = handle;
+		arguments[size] = argument;
+		++size;
+	}
+
+	private void resize (int newCapacity) {
+		byte[] newCommands = new byte[newCapacity];
+		Entity[] newEntities = new Entity[newCapacity];
+		long[] newHandles = new long[newCapacity];
+		Object[] newArguments = new Object[newCapacity];
+		System.arraycopy(commands, 0, newCommands, 0, size);
+		System.arraycopy(entities, 0, newEntities, 0, size);
+		System.arraycopy(handles, 0, newHandles, 0, size);
+		System.arraycopy(arguments, 0, newArguments, 0, size);
+		commands = newCommands;
+		entities = newEntities;
+		handles = newHandles;
+		arguments = newArguments;
+	}
+}
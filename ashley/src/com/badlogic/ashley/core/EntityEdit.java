@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.core;
+
+/**
+ * A set of component changes on an {@link Entity}, obtained via {@link Entity#edit()}. Changes are applied to the entity as
+ * they are made, but family membership is updated and signals are dispatched only once the edit is committed, so the entity
+ * goes straight from its old families to its new ones.
+ */
+public class EntityEdit {
+	private final Entity entity;
+	private int adds;
+	private int removes;
+	private int componentTypeIndex = -1;
+
+	EntityEdit (Entity entity) {
+		this.entity = entity;
+	}
+
+	/**
+	 * Adds a {@link Component} to the entity. If a {@link Component} of the same type already exists, it'll be replaced.
+	 * @return This edit for easy chaining
+	 */
+	public EntityEdit add (Component component) {
+		if (entity.validatingAccess()) {
+			entity.checkAccess(ComponentType.getIndexFor(component.getClass()), true);
+		}
+
+		if (entity.addInternal(component)) {
+			changed(ComponentType.getIndexFor(component.getClass()));
+			++adds;
+		}
+
+		return this;
+	}
+
+	/**
+	 * Removes the {@link Component} of the specified type from the entity.
+	 * @return This edit for easy chaining
+	 */
+	public EntityEdit remove (Class<? extends Component> componentClass) {
+		if (entity.validatingAccess()) {
+			entity.checkAccess(ComponentType.getIndexFor(componentClass), true);
+		}
+
+		if (entity.removeInternal(componentClass) != null) {
+			changed(ComponentType.getIndexFor(componentClass));
+			++removes;
+		}
+
+		return this;
+	}
+
+	/** @return Whether the edit contains changes that have not been committed yet. */
+	public boolean hasChanges () {
+		return adds + removes > 0;
+	}
+
+	/**
+	 * Notifies all the changes made since the edit was started: the entity's families are updated once and its component signals
+	 * are dispatched once per change.
+	 * @return The edited Entity
+	 */
+	public Entity commit () {
+		if (!hasChanges()) {
+			return entity;
+		}
+
+		int changedAdds = adds;
+		int changedRemoves = removes;
+		int changedComponentTypeIndex = componentTypeIndex;
+
+		// Reset first, listeners may start a new edit.
+		adds = 0;
+		removes = 0;
+		componentTypeIndex = -1;
+
+		ComponentOperationHandler handler = entity.componentOperationHandler;
+
+		if (handler != null) {
+			handler.changed(entity, changedComponentTypeIndex, changedAdds, changedRemoves);
+		}
+		else {
+			for (int i = 0; i < changedAdds; ++i) {
+				entity.notifyComponentAdded();
+			}
+
+			for (int i = 0; i < changedRemoves; ++i) {
+				entity.notifyComponentRemoved();
+			}
+		}
+
+		return entity;
+	}
+
+	private void changed (int changedComponentTypeIndex) {
+		if (!hasChanges()) {
+			componentTypeIndex = changedComponentTypeIndex;
+		} else if (componentTypeIndex != changedComponentTypeIndex) {
+			componentTypeIndex = -1;
+		}
+	}
+}
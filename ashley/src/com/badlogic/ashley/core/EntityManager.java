@@ -3,16 +3,20 @@ package com.badlogic.ashley.core;
 
 import com.badlogic.ashley.utils.ImmutableArray;
 import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.Pool;
 
 class EntityManager {
 	private EntityListener listener;
 	private Array<Entity> entities = new Array<Entity>(false, 16);
-	private ObjectSet<Entity> entitySet = new ObjectSet<Entity>();
+	private Array<Entity> entitiesByIndex = new Array<Entity>(true, 16);
+	private IntArray generations = new IntArray(true, 16);
+	private IntArray freeIndices = new IntArray(false, 16);
+	private IntArray entityPositions = new IntArray(true, 16);
 	private ImmutableArray<Entity> immutableEntities = new ImmutableArray<Entity>(entities);
 	private Array<EntityOperation> pendingOperations = new Array<EntityOperation>(false, 16);
 	private EntityOperationPool entityOperationPool = new EntityOperationPool();
+	private ComponentStorage componentStorage = new ComponentStorage();
 	
 	public EntityManager(EntityListener listener) {
 		this.listener = listener;
@@ -78,9 +82,7 @@ class EntityManager {
 			pendingOperations.add(operation);
 		}
 		else {
-			while(entities.size() > 0) {
-				removeEntity(entities.first(), false);
-			}
+			removeEntitiesInternal(entities);
 		}
 	}
 	
@@ -88,6 +90,21 @@ class EntityManager {
 		return immutableEntities;
 	}
 	
+	public Entity getEntity(long handle) {
+		int index = Entity.getIndex(handle);
+
+		if (index < 0 || index >= entitiesByIndex.size || generations.get(index) != Entity.getGeneration(handle)) {
+			return null;
+		}
+
+		return entitiesByIndex.get(index);
+	}
+	
+	/** @return The stores holding the components of the registered entities. */
+	public ComponentStorage getComponentStorage() {
+		return componentStorage;
+	}
+	
 	public boolean hasPendingOperations() {
 		return pendingOperations.size > 0;
 	}
@@ -99,11 +116,7 @@ class EntityManager {
 			switch(operation.type) {
 				case Add: addEntityInternal(operation.entity); break;
 				case Remove: removeEntityInternal(operation.entity); break;
-				case RemoveAll:
-					while(operation.entities.size() > 0) {
-						removeEntityInternal(operation.entities.first());
-					}
-					break;
+				case RemoveAll: removeEntitiesInternal(operation.entities); break;
 				default:
 					throw new AssertionError("Unexpected EntityOperation type");
 			}
@@ -115,27 +128,169 @@ class EntityManager {
 	}
 	
 	protected void removeEntityInternal(Entity entity) {
-		boolean removed = entitySet.remove(entity);
-
-		if (removed) {
+		if (isRegistered(entity)) {
 			entity.scheduledForRemoval = false;
 			entity.removing = true;
-			entities.removeValue(entity, true);
+			removeFromEntities(entity);
 			listener.entityRemoved(entity);
 			entity.removing = false;
+			releaseIndex(entity);
+		}
+	}
+
+	/**
+	 * Removes the registered entities among the given ones in one go. The listener is notified with the whole batch if it is a
+	 * {@link BatchRemovalListener}, entity by entity otherwise.
+	 */
+	protected void removeEntitiesInternal(ImmutableArray<Entity> toRemove) {
+		// The given entities may be a family array that changes while removing, work on a snapshot.
+		Array<Entity> removed = new Array<Entity>(false, Math.max(toRemove.size(), 1), Entity.class);
+
+		for (int i = 0; i < toRemove.size(); ++i) {
+			Entity entity = toRemove.get(i);
+
+			if (isRegistered(entity) && !entity.removing) {
+				entity.scheduledForRemoval = false;
+				entity.removing = true;
+				removed.add(entity);
+			}
+		}
+
+		if (removed.size == 0) {
+			return;
+		}
+
+		if (removed.size == entities.size) {
+			entities.clear();
+		} else if (removed.size * 2 >= entities.size) {
+			compactEntities();
+		} else {
+			for (int i = 0; i < removed.size; ++i) {
+				removeFromEntities(removed.get(i));
+			}
+		}
+
+		if (listener instanceof BatchRemovalListener) {
+			((BatchRemovalListener)listener).entitiesRemoved(removed);
+		} else {
+			for (int i = 0; i < removed.size; ++i) {
+				listener.entityRemoved(removed.get(i));
+			}
+		}
+
+		for (int i = 0; i < removed.size; ++i) {
+			Entity entity = removed.get(i);
+			entity.removing = false;
+			releaseIndex(entity);
 		}
 	}
 
 	protected void addEntityInternal(Entity entity) {
-		if (entitySet.contains(entity)) {
+		if (entity.index >= 0) {
 			throw new IllegalArgumentException("Entity is already registered " + entity);
 		}
 
+		assignIndex(entity);
+		entityPositions.set(entity.index, entities.size);
 		entities.add(entity);
-		entitySet.add(entity);
 
 		listener.entityAdded(entity);
 	}
+	
+	/**
+	 * Registers the entities in one go without notifying the listener, the caller is responsible for adding them to their
+	 * families.
+	 */
+	void registerEntities(Array<Entity> added) {
+		for (int i = 0; i < added.size; ++i) {
+			Entity entity = added.get(i);
+
+			if (entity.index >= 0) {
+				throw new IllegalArgumentException("Entity is already registered " + entity);
+			}
+		}
+
+		entities.ensureCapacity(added.size);
+
+		for (int i = 0; i < added.size; ++i) {
+			Entity entity = added.get(i);
+			assignIndex(entity);
+			entityPositions.set(entity.index, entities.size);
+			entities.add(entity);
+		}
+	}
+	
+	private void removeFromEntities(Entity entity) {
+		// Swap remove, the last entity takes the place of the removed one.
+		int position = entityPositions.get(entity.index);
+		Entity last = entities.peek();
+		entities.removeIndex(position);
+
+		if (last != entity) {
+			entityPositions.set(last.index, position);
+		}
+	}
+	
+	private void compactEntities() {
+		// Single pass over the engine array keeping the entities that are not being removed.
+		int size = 0;
+
+		for (int i = 0; i < entities.size; ++i) {
+			Entity entity = entities.get(i);
+
+			if (!entity.removing) {
+				if (size != i) {
+					entities.set(size, entity);
+					entityPositions.set(entity.index, size);
+				}
+				++size;
+			}
+		}
+
+		entities.truncate(size);
+	}
+	
+	private boolean isRegistered(Entity entity) {
+		int index = entity.index;
+		return index >= 0 && index < entitiesByIndex.size && entitiesByIndex.get(index) == entity;
+	}
+	
+	private void assignIndex(Entity entity) {
+		int index;
+
+		if (freeIndices.size > 0) {
+			index = freeIndices.pop();
+			entitiesByIndex.set(index, entity);
+		} else {
+			index = entitiesByIndex.size;
+			entitiesByIndex.add(entity);
+			generations.add(1);
+			entityPositions.add(-1);
+		}
+
+		entity.index = index;
+		entity.generation = generations.get(index);
+		componentStorage.attach(entity);
+	}
+	
+	private void releaseIndex(Entity entity) {
+		componentStorage.detach(entity);
+
+		int index = entity.index;
+		int generation = generations.get(index) + 1;
+
+		// Stale handles must never match again, 0 is reserved so that no valid handle is 0.
+		generations.set(index, generation == 0 ? 1 : generation);
+		entitiesByIndex.set(index, null);
+		freeIndices.add(index);
+		entity.index = -1;
+		entity.generation = 0;
+	}
+
+	/** Notified once with all the entities removed together, instead of entity by entity. */
+	interface BatchRemovalListener {
+		public void entitiesRemoved(Array<Entity> entities);
+	}
 
 	private static class EntityOperation implements Pool.Poolable {
 		public enum Type {
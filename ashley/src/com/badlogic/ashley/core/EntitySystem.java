@@ -16,6 +16,8 @@
 
 package com.badlogic.ashley.core;
 
+import com.badlogic.gdx.utils.Bits;
+
 /**
  * Abstract class for processing sets of {@link Entity} objects.
  * @author Stefan Bachmann
@@ -26,6 +28,10 @@ public abstract class EntitySystem {
 
 	private boolean processing;
 	private Engine engine;
+	private final Bits readBits = new Bits();
+	private final Bits writeBits = new Bits();
+	private boolean accessDeclared;
+	EntityCommandBuffer commandBuffer;
 
 	/** Default constructor that will initialise an EntitySystem with priority 0. */
 	public EntitySystem () {
@@ -78,6 +84,63 @@ public abstract class EntitySystem {
 		return engine;
 	}
 	
+	/**
+	 * Declares that the system reads components of the given types. A {@link ScheduledEngine} runs systems that declared their
+	 * component access concurrently with the systems they do not conflict with, a system declaring nothing always runs alone.
+	 * Declare access before adding the system to an engine.
+	 */
+	@SafeVarargs
+	protected final void reads (Class<? extends Component>... componentTypes) {
+		accessDeclared = true;
+
+		for (int i = 0; i < componentTypes.length; ++i) {
+			readBits.set(ComponentType.getIndexFor(componentTypes[i]));
+		}
+	}
+
+	/**
+	 * Declares that the system modifies, adds or removes components of the given types, see {@link #reads(Class...)}.
+	 */
+	@SafeVarargs
+	protected final void writes (Class<? extends Component>... componentTypes) {
+		accessDeclared = true;
+
+		for (int i = 0; i < componentTypes.length; ++i) {
+			writeBits.set(ComponentType.getIndexFor(componentTypes[i]));
+		}
+	}
+
+	/** @return Whether the system declared the components it reads or writes. */
+	public boolean declaresAccess () {
+		return accessDeclared;
+	}
+
+	/**
+	 * @return A buffer for structural changes, played back by the engine right after this system's update. Systems run
+	 * concurrently by a {@link ScheduledEngine} must record their structural changes here.
+	 */
+	protected EntityCommandBuffer getCommandBuffer () {
+		if (commandBuffer == null) {
+			commandBuffer = new EntityCommandBuffer();
+		}
+
+		return commandBuffer;
+	}
+
+	/** @return Whether the system may access components of the given type, writing them if write is set. */
+	boolean canAccess (int componentTypeIndex, boolean write) {
+		return !accessDeclared || writeBits.get(componentTypeIndex) || (!write && readBits.get(componentTypeIndex));
+	}
+
+	/** @return Whether the two systems may not run concurrently, because one of them writes what the other one accesses. */
+	boolean conflictsWith (EntitySystem other) {
+		if (!accessDeclared || !other.accessDeclared) {
+			return true;
+		}
+
+		return writeBits.intersects(other.readBits) || writeBits.intersects(other.writeBits) || other.writeBits.intersects(readBits);
+	}
+
 	final void addedToEngineInternal(Engine engine) {
 		this.engine = engine;
 		addedToEngine(engine);
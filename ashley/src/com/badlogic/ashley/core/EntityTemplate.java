@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.core;
+
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Bits;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Describes a component layout, and optionally the initial values of each component, to instantiate entities from via
+ * {@link Engine#instantiate(EntityTemplate)} and {@link Engine#instantiate(EntityTemplate, int)}. Component type indices and
+ * bits are resolved when components are added to the template, and the families of the layout are resolved once per engine, so
+ * instantiating only creates and initializes components.
+ * <ul>
+ * <li>Components are created with {@link Engine#createComponent(Class)}, a {@link PooledEngine} takes them from its pools.
+ * A {@link ComponentFactory} creates them without reflection, a {@link PooledEngine} only uses it when its pool is empty
+ * and still needs a no-arg constructor to create its pool.</li>
+ * <li>A {@link ComponentInitializer} sets the initial values of a new component, no component signals are dispatched.</li>
+ * </ul>
+ * A template can be shared by several engines, including engines updated from different threads, as long as it is not
+ * changed while they instantiate it.
+ */
+public class EntityTemplate {
+	private final Array<Class<? extends Component>> componentTypes = new Array<Class<? extends Component>>(false, 8);
+	private final ImmutableArray<Class<? extends Component>> immutableComponentTypes = new ImmutableArray<Class<? extends Component>>(componentTypes);
+	final Array<ComponentFactory<Component>> factories = new Array<ComponentFactory<Component>>(false, 8);
+	final Array<ComponentInitializer<Component>> initializers = new Array<ComponentInitializer<Component>>(false, 8);
+	final IntArray componentTypeIndices = new IntArray(false, 8);
+	final Bits componentBits = new Bits();
+
+	/** Last looked up signature with its manager, replaced as a whole so engines on other threads never see a mismatched pair. */
+	private volatile CachedSignature cachedSignature;
+
+	/** Creates an empty template. */
+	public EntityTemplate () {
+	}
+
+	/**
+	 * Creates a template with components of the given types, left with their default values.
+	 * @param componentTypes component types of the instantiated entities.
+	 */
+	@SafeVarargs
+	public EntityTemplate (Class<? extends Component>... componentTypes) {
+		for (int i = 0; i < componentTypes.length; ++i) {
+			add(componentTypes[i], null);
+		}
+	}
+
+	/**
+	 * Adds a component type to the template, its components are left with their default values.
+	 * @return This template, for chaining.
+	 */
+	public <T extends Component> EntityTemplate add (Class<T> componentType) {
+		return add(componentType, null);
+	}
+
+	/**
+	 * Adds a component type to the template, replacing the initializer if the type is already part of it.
+	 * @param initializer sets the initial values of every component created for this template, may be null.
+	 * @return This template, for chaining.
+	 */
+	public <T extends Component> EntityTemplate add (Class<T> componentType, ComponentInitializer<? super T> initializer) {
+		return add(componentType, null, initializer);
+	}
+
+	/**
+	 * Adds a component type to the template, replacing the factory and initializer if the type is already part of it.
+	 * @param factory creates the components of this type without reflection, may be null.
+	 * @param initializer sets the initial values of every component created for this template, may be null.
+	 * @return This template, for chaining.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Component> EntityTemplate add (Class<T> componentType, ComponentFactory<? extends T> factory,
+		ComponentInitializer<? super T> initializer) {
+		int componentTypeIndex = ComponentType.getIndexFor(componentType);
+
+		if (componentBits.get(componentTypeIndex)) {
+			int index = componentTypeIndices.indexOf(componentTypeIndex);
+			factories.set(index, (ComponentFactory<Component>)factory);
+			initializers.set(index, (ComponentInitializer<Component>)initializer);
+			return this;
+		}
+
+		componentTypes.add(componentType);
+		factories.add((ComponentFactory<Component>)factory);
+		initializers.add((ComponentInitializer<Component>)initializer);
+		componentTypeIndices.add(componentTypeIndex);
+		componentBits.set(componentTypeIndex);
+		cachedSignature = null;
+		return this;
+	}
+
+	/** @return The component types of the instantiated entities. */
+	public ImmutableArray<Class<? extends Component>> getComponentTypes () {
+		return immutableComponentTypes;
+	}
+
+	/** @return Whether the template matches the family requirements or not. */
+	public boolean matches (Family family) {
+		return family.matches(componentBits);
+	}
+
+	/** @return The signature of the layout within the manager, looked up once and kept up to date by the manager. */
+	FamilyManager.Signature getSignature (FamilyManager familyManager) {
+		CachedSignature cached = cachedSignature;
+
+		if (cached == null || cached.familyManager != familyManager) {
+			cached = new CachedSignature(familyManager, familyManager.getSignature(componentBits));
+			cachedSignature = cached;
+		}
+
+		return cached.signature;
+	}
+
+	/** Creates the components of one type for an {@link EntityTemplate}, e.g. {@code return new PositionComponent();}. */
+	public interface ComponentFactory<T extends Component> {
+		public T create ();
+	}
+
+	/** Sets the initial values of components created for an {@link EntityTemplate}. */
+	public interface ComponentInitializer<T extends Component> {
+		public void initialize (T component);
+	}
+
+	private static class CachedSignature {
+		final FamilyManager familyManager;
+		final FamilyManager.Signature signature;
+
+		CachedSignature (FamilyManager familyManager, FamilyManager.Signature signature) {
+			this.familyManager = familyManager;
+			this.signature = signature;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package com.badlogic.ashley.core;
+
+import com.badlogic.gdx.utils.ReflectionPool;
+
+/**
+ * Typed events exchanged between systems of one {@link Engine}, without going through components and families. Events are
+ * pooled and kept in a ring buffer that only grows while warming up, so posting and reading allocate nothing in steady state.
+ * <ul>
+ * <li>{@link #post()} returns a pooled event to fill in, it becomes readable once the current {@link Engine#update(float)}
+ * ends. Every system thus sees the events of the previous update, whatever the system order.</li>
+ * <li>Each subscriber reads through its own {@link Reader}, events are recycled at the end of the update they were readable in,
+ * readers not reading during that update miss them.</li>
+ * </ul>
+ * Events implementing {@link com.badlogic.gdx.utils.Pool.Poolable} are reset when recycled. Events can be posted from several
+ * threads, e.g. by systems of a {@link ScheduledEngine}, and each reader can be used from one thread at a time.
+ * @param <T> the class type of the events, it needs a public no-arg constructor.
+ */
+public final class EventQueue<T> {
+	final Class<T> eventClass;
+	private final ReflectionPool<T> pool;
+	private volatile Object[] events = new Object[16];
+	/** Sequence of the first event readable during this update. */
+	private long head;
+	/** Sequence of the first event posted during this update, the events before it are readable. */
+	private long published;
+	/** Sequence of the next posted event. */
+	private long tail;
+
+	/**
+	 * @param eventClass Class of the events exchanged through the queue.
+	 * @param engine Engine whose updates make the events readable and recycle them.
+	 * @return The queue of the engine for events of the given class.
+	 */
+	public static <T> EventQueue<T> getFor (Class<T> eventClass, Engine engine) {
+		return engine.getEventQueue(eventClass);
+	}
+
+	EventQueue (Class<T> eventClass) {
+		this.eventClass = eventClass;
+		this.pool = new ReflectionPool<T>(eventClass);
+	}
+
+	/** @return A pooled event, readable once the current update ends. It must be filled in before then. */
+	public synchronized T post () {
+		Object[] items = events;
+
+		if (tail - head == items.length) {
+			Object[] newItems = new Object[items.length << 1];
+
+			for (long s = head; s < tail; ++s) {
+				newItems[(int)s & (newItems.length - 1)] = items[(int)s & (items.length - 1)];
+			}
+
+			events = items = newItems;
+		}
+
+		T event = pool.obtain();
+		items[(int)tail & (items.length - 1)] = event;
+		++tail;
+		return event;
+	}
+
+	/** @return A new reader, positioned at the first event readable during the current update. */
+	public Reader<T> createReader () {
+		Reader<T> reader = new Reader<T>(this);
+		reader.cursor = head;
+		return reader;
+	}
+
+	@SuppressWarnings("unchecked")
+	T next (Reader<T> reader) {
+		// head and published only change between updates, posting concurrently never touches the readable range.
+		long cursor = Math.max(reader.cursor, head);
+
+		if (cursor >= published) {
+			reader.cursor = cursor;
+			return null;
+		}
+
+		Object[] items = events;
+		reader.cursor = cursor + 1;
+		return (T)items[(int)cursor & (items.length - 1)];
+	}
+
+	/** Recycles the events that were readable during the update that ended, and publishes those posted during it. */
+	@SuppressWarnings("unchecked")
+	synchronized void swap () {
+		Object[] items = events;
+
+		for (long s = head; s < published; ++s) {
+			int index = (int)s & (items.length - 1);
+			pool.free((T)items[index]);
+			items[index] = null;
+		}
+
+		head = published;
+		published = tail;
+	}
+
+	/** Reads the events of an {@link EventQueue}, one reader per subscriber. */
+	public static final class Reader<T> {
+		private final EventQueue<T> queue;
+		long cursor;
+
+		Reader (EventQueue<T> queue) {
+			this.queue = queue;
+		}
+
+		/** @return The next unread event, null once all the readable events were read. It must not be kept past the update. */
+		public T next () {
+			return queue.next(this);
+		}
+	}
+}
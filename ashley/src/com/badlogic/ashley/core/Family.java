@@ -16,26 +16,38 @@
 
 package com.badlogic.ashley.core;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import com.badlogic.gdx.utils.Bits;
-import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.IntMap;
 
 /**
  * Represents a group of {@link Component}s. It is used to describe what {@link Entity} objects an {@link EntitySystem} should
  * process. Example: {@code Family.all(PositionComponent.class, VelocityComponent.class).get()} Families can't be instantiated
  * directly but must be accessed via a builder ( start with {@code Family.all()}, {@code Family.one()} or {@code Family.exclude()}
- * ), this is to avoid duplicate families that describe the same components.
+ * ), this is to avoid duplicate families that describe the same components. Families can be obtained from any thread, looking up
+ * an existing family does not lock.
  * @author Stefan Bachmann
  */
 public class Family {
-	private static ObjectMap<String, Family> families = new ObjectMap<String, Family>();
+	/** Copy on write intern table, published instances are never modified so readers need no lock. */
+	private static volatile IntMap<Family[]> families = new IntMap<Family[]>();
 	private static int familyIndex = 0;
-	private static final Builder builder = new Builder();
-	private static final Bits zeroBits = new Bits();
+	/** Builder recycled by {@link Builder#get()} for the static methods, taking it is a swap so no lock is needed. */
+	private static final AtomicReference<Builder> freeBuilder = new AtomicReference<Builder>();
 
 	private final Bits all;
 	private final Bits one;
 	private final Bits exclude;
 	private final int index;
+	/** Whether any component type is beyond the long masks, in which case matching has to use the Bits. */
+	private final boolean wide;
+	private final long allMask0;
+	private final long allMask1;
+	private final long oneMask0;
+	private final long oneMask1;
+	private final long excludeMask0;
+	private final long excludeMask1;
 
 	/** Private constructor, use static method Family.getFamilyFor() */
 	private Family (Bits all, Bits any, Bits exclude) {
@@ -43,6 +55,14 @@ public class Family {
 		this.one = any;
 		this.exclude = exclude;
 		this.index = familyIndex++;
+		this.wide = all.length() > ComponentType.MASK_SIZE || any.length() > ComponentType.MASK_SIZE
+			|| exclude.length() > ComponentType.MASK_SIZE;
+		this.allMask0 = ComponentType.getMask(all, 0);
+		this.allMask1 = ComponentType.getMask(all, 1);
+		this.oneMask0 = ComponentType.getMask(any, 0);
+		this.oneMask1 = ComponentType.getMask(any, 1);
+		this.excludeMask0 = ComponentType.getMask(exclude, 0);
+		this.excludeMask1 = ComponentType.getMask(exclude, 1);
 	}
 
 	/** @return This family's unique index */
@@ -50,10 +70,48 @@ public class Family {
 		return this.index;
 	}
 
+	Bits getAll () {
+		return all;
+	}
+
+	Bits getOne () {
+		return one;
+	}
+
+	Bits getExclude () {
+		return exclude;
+	}
+
 	/** @return Whether the entity matches the family requirements or not */
 	public boolean matches (Entity entity) {
-		Bits entityComponentBits = entity.getComponentBits();
+		return matches(entity.componentMask0, entity.componentMask1, entity.getComponentBits());
+	}
+
+	/**
+	 * Matches the long masks of the component types below {@link ComponentType#MASK_SIZE}, which is enough unless this family
+	 * mentions a type beyond them.
+	 */
+	boolean matches (long componentMask0, long componentMask1, Bits entityComponentBits) {
+		if (wide) {
+			return matches(entityComponentBits);
+		}
+
+		if ((componentMask0 & allMask0) != allMask0 || (componentMask1 & allMask1) != allMask1) {
+			return false;
+		}
 
+		if ((oneMask0 | oneMask1) != 0L && (componentMask0 & oneMask0) == 0L && (componentMask1 & oneMask1) == 0L) {
+			return false;
+		}
+
+		if ((componentMask0 & excludeMask0) != 0L || (componentMask1 & excludeMask1) != 0L) {
+			return false;
+		}
+
+		return true;
+	}
+
+	boolean matches (Bits entityComponentBits) {
 		if (!entityComponentBits.containsAll(all)) {
 			return false;
 		}
@@ -71,91 +129,124 @@ public class Family {
 
 	/**
 	 * @param componentTypes entities will have to contain all of the specified components.
-	 * @return A Builder singleton instance to get a family
+	 * @return A new Builder instance to get a family
 	 */
 	@SafeVarargs
 	public static final Builder all (Class<? extends Component>... componentTypes) {
-		return builder.reset().all(componentTypes);
+		return obtainBuilder().all(componentTypes);
 	}
 
 	/**
 	 * @param componentTypes entities will have to contain at least one of the specified components.
-	 * @return A Builder singleton instance to get a family
+	 * @return A new Builder instance to get a family
 	 */
 	@SafeVarargs
 	public static final Builder one (Class<? extends Component>... componentTypes) {
-		return builder.reset().one(componentTypes);
+		return obtainBuilder().one(componentTypes);
 	}
 
 	/**
 	 * @param componentTypes entities cannot contain any of the specified components.
-	 * @return A Builder singleton instance to get a family
+	 * @return A new Builder instance to get a family
 	 */
 	@SafeVarargs
 	public static final Builder exclude (Class<? extends Component>... componentTypes) {
-		return builder.reset().exclude(componentTypes);
+		return obtainBuilder().exclude(componentTypes);
 	}
 
+	/**
+	 * Configures and obtains {@link Family} instances. A Builder is not thread safe. The static {@link Family#all},
+	 * {@link Family#one} and {@link Family#exclude} methods hand out recycled builders, so looking up an existing family does
+	 * not allocate: such a builder must not be used anymore once {@link #get()} returned. Builders created with the constructor
+	 * are never recycled and can be reused after {@link #reset()}.
+	 */
 	public static class Builder {
-		private Bits all = zeroBits;
-		private Bits one = zeroBits;
-		private Bits exclude = zeroBits;
+		private final Bits all = new Bits();
+		private final Bits one = new Bits();
+		private final Bits exclude = new Bits();
+		private boolean recycled;
+
+		public Builder () {
 
-		Builder() {
-			
 		}
-		
+
 		/**
 		 * Resets the builder instance
-		 * @return A Builder singleton instance to get a family
+		 * @return This Builder instance
 		 */
 		public Builder reset () {
-			all = zeroBits;
-			one = zeroBits;
-			exclude = zeroBits;
+			all.clear();
+			one.clear();
+			exclude.clear();
 			return this;
 		}
 
 		/**
 		 * @param componentTypes entities will have to contain all of the specified components.
-		 * @return A Builder singleton instance to get a family
+		 * @return This Builder instance
 		 */
 		@SafeVarargs
 		public final Builder all (Class<? extends Component>... componentTypes) {
-			all = ComponentType.getBitsFor(componentTypes);
+			setBits(all, componentTypes);
 			return this;
 		}
 
 		/**
 		 * @param componentTypes entities will have to contain at least one of the specified components.
-		 * @return A Builder singleton instance to get a family
+		 * @return This Builder instance
 		 */
 		@SafeVarargs
 		public final Builder one (Class<? extends Component>... componentTypes) {
-			one = ComponentType.getBitsFor(componentTypes);
+			setBits(one, componentTypes);
 			return this;
 		}
 
 		/**
 		 * @param componentTypes entities cannot contain any of the specified components.
-		 * @return A Builder singleton instance to get a family
+		 * @return This Builder instance
 		 */
 		@SafeVarargs
 		public final Builder exclude (Class<? extends Component>... componentTypes) {
-			exclude = ComponentType.getBitsFor(componentTypes);
+			setBits(exclude, componentTypes);
 			return this;
 		}
 
 		/** @return A family for the configured component types */
 		public Family get () {
-			String hash = getFamilyHash(all, one, exclude);
-			Family family = families.get(hash, null);
+			int hash = getFamilyHash(all, one, exclude);
+			Family family = find(families, hash, all, one, exclude);
+
 			if (family == null) {
-				family = new Family(all, one, exclude);
-				families.put(hash, family);
+				family = intern(hash, all, one, exclude);
 			}
+
+			if (recycled) {
+				recycled = false;
+				freeBuilder.set(this);
+			}
+
 			return family;
 		}
+
+		@SafeVarargs
+		private static void setBits (Bits bits, Class<? extends Component>... componentTypes) {
+			bits.clear();
+
+			for (int i = 0; i < componentTypes.length; ++i) {
+				bits.set(ComponentType.getIndexFor(componentTypes[i]));
+			}
+		}
+	}
+
+	private static Builder obtainBuilder () {
+		Builder builder = freeBuilder.getAndSet(null);
+
+		if (builder == null) {
+			builder = new Builder();
+		}
+
+		builder.recycled = true;
+		return builder.reset();
 	}
 
 	@Override
@@ -168,28 +259,60 @@ public class Family {
 		return this == obj;
 	}
 
-	private static String getFamilyHash (Bits all, Bits one, Bits exclude) {
-		StringBuilder stringBuilder = new StringBuilder();
-		if (!all.isEmpty()) {
-			stringBuilder.append("{all:").append(getBitsString(all)).append("}");
-		}
-		if (!one.isEmpty()) {
-			stringBuilder.append("{one:").append(getBitsString(one)).append("}");
-		}
-		if (!exclude.isEmpty()) {
-			stringBuilder.append("{exclude:").append(getBitsString(exclude)).append("}");
+	private static Family find (IntMap<Family[]> families, int hash, Bits all, Bits one, Bits exclude) {
+		Family[] bucket = families.get(hash);
+
+		if (bucket != null) {
+			for (int i = 0; i < bucket.length; ++i) {
+				Family family = bucket[i];
+
+				if (family.all.equals(all) && family.one.equals(one) && family.exclude.equals(exclude)) {
+					return family;
+				}
+			}
 		}
-		return stringBuilder.toString();
+
+		return null;
 	}
 
-	private static String getBitsString (Bits bits) {
-		StringBuilder stringBuilder = new StringBuilder();
+	private static synchronized Family intern (int hash, Bits all, Bits one, Bits exclude) {
+		IntMap<Family[]> current = families;
+		Family family = find(current, hash, all, one, exclude);
+
+		if (family != null) {
+			return family;
+		}
+
+		family = new Family(copy(all), copy(one), copy(exclude));
+
+		Family[] bucket = current.get(hash);
+		Family[] newBucket;
 
-		int numBits = bits.length();
-		for (int i = 0; i < numBits; ++i) {
-			stringBuilder.append(bits.get(i) ? "1" : "0");
+		if (bucket == null) {
+			newBucket = new Family[] {family};
+		} else {
+			newBucket = new Family[bucket.length + 1];
+			System.arraycopy(bucket, 0, newBucket, 0, bucket.length);
+			newBucket[bucket.length] = family;
 		}
 
-		return stringBuilder.toString();
+		IntMap<Family[]> updated = new IntMap<Family[]>(current);
+		updated.put(hash, newBucket);
+		families = updated;
+
+		return family;
+	}
+
+	private static Bits copy (Bits bits) {
+		Bits copy = new Bits();
+		copy.or(bits);
+		return copy;
+	}
+
+	private static int getFamilyHash (Bits all, Bits one, Bits exclude) {
+		int hash = ComponentType.hashBits(all);
+		hash = 31 * hash + ComponentType.hashBits(one);
+		hash = 31 * hash + ComponentType.hashBits(exclude);
+		return hash;
 	}
 }
@@ -3,33 +3,86 @@ package com.badlogic.ashley.core;
 import com.badlogic.ashley.utils.ImmutableArray;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Bits;
-import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectSet;
 import com.badlogic.gdx.utils.Pool;
 import com.badlogic.gdx.utils.SnapshotArray;
 
 class FamilyManager {
 	ImmutableArray<Entity> entities;
-	private ObjectMap<Family, Array<Entity>> families = new ObjectMap<Family, Array<Entity>>();
-	private ObjectMap<Family, ImmutableArray<Entity>> immutableFamilies = new ObjectMap<Family, ImmutableArray<Entity>>();
+	private Array<FamilyData> familyData = new Array<FamilyData>(true, 16);
+	private Array<FamilyData> registeredFamilies = new Array<FamilyData>(false, 16);
+	private Array<Array<FamilyData>> familiesByComponent = new Array<Array<FamilyData>>(true, 16);
+	private IntMap<Array<Signature>> signaturesByHash = new IntMap<Array<Signature>>();
+	private Array<Signature> signatures = new Array<Signature>(false, 16);
 	private SnapshotArray<EntityListenerData> entityListeners = new SnapshotArray<EntityListenerData>(true, 16);
-	private ObjectMap<Family, Bits> entityListenerMasks = new ObjectMap<Family, Bits>();
 	private BitsPool bitsPool = new BitsPool();
+	private IntArray removedCounts = new IntArray(true, 16);
+	private final Bits emptyBits = new Bits();
 	private boolean notifying = false;
+	private int batchDepth = 0;
+	private int pendingBatches = 0;
+	private boolean deliveringBatches = false;
 	
 	public FamilyManager(ImmutableArray<Entity> entities) {
 		this.entities = entities;
 	}
 	
 	public ImmutableArray<Entity> getEntitiesFor(Family family) {
-		return registerFamily(family);
+		return registerFamily(family).immutableEntities;
 	}
 	
 	public boolean notifying() {
 		return notifying;
 	}
 	
+	/**
+	 * Starts collecting the membership changes for {@link BatchEntityListener}s, they are delivered per listener once the
+	 * outermost batch ends. Other listeners are still notified right away.
+	 */
+	public void beginBatch() {
+		++batchDepth;
+	}
+	
+	public void endBatch() {
+		if (--batchDepth > 0 || deliveringBatches || pendingBatches == 0) {
+			return;
+		}
+
+		// Changes made by listeners while delivering are collected and delivered by the same loop.
+		deliveringBatches = true;
+		boolean wasNotifying = notifying;
+		notifying = true;
+
+		try {
+			while (pendingBatches > 0) {
+				Object[] items = entityListeners.begin();
+
+				try {
+					for (int i = 0, n = entityListeners.size; i < n; ++i) {
+						EntityListenerData data = (EntityListenerData)items[i];
+
+						if (data.batch != null && data.batch.pending) {
+							--pendingBatches;
+							data.batch.deliver((BatchEntityListener)data.listener, data.family.getIndex());
+						}
+					}
+				}
+				finally {
+					entityListeners.end();
+				}
+			}
+		}
+		finally {
+			notifying = wasNotifying;
+			deliveringBatches = false;
+		}
+	}
+	
 	public void addEntityListener (Family family, int priority, EntityListener listener) {
-		registerFamily(family);
+		FamilyData data = registerFamily(family);
 
 		int insertionIndex = 0;
 		while (insertionIndex < entityListeners.size) {
@@ -41,7 +94,8 @@ class FamilyManager {
 		}
 
 		// Shift up bitmasks by one step
-		for (Bits mask : entityListenerMasks.values()) {
+		for (FamilyData registered : registeredFamilies) {
+			Bits mask = registered.listenerMask;
 			for (int k = mask.length(); k > insertionIndex; k--) {
 				if (mask.get(k - 1)) {
 					mask.set(k);
@@ -52,11 +106,16 @@ class FamilyManager {
 			mask.clear(insertionIndex);
 		}
 
-		entityListenerMasks.get(family).set(insertionIndex);
+		data.listenerMask.set(insertionIndex);
 
 		EntityListenerData entityListenerData = new EntityListenerData();
 		entityListenerData.listener = listener;
 		entityListenerData.priority = priority;
+		entityListenerData.family = family;
+
+		if (listener instanceof BatchEntityListener) {
+			entityListenerData.batch = new ListenerBatch();
+		}
 		entityListeners.insert(insertionIndex, entityListenerData);
 	}
 	
@@ -65,7 +124,8 @@ class FamilyManager {
 			EntityListenerData entityListenerData = entityListeners.get(i);
 			if (entityListenerData.listener == listener) {
 				// Shift down bitmasks by one step
-				for (Bits mask : entityListenerMasks.values()) {
+				for (FamilyData registered : registeredFamilies) {
+					Bits mask = registered.listenerMask;
 					for (int k = i, n = mask.length(); k < n; k++) {
 						if (mask.get(k + 1)) {
 							mask.set(k);
@@ -75,50 +135,73 @@ class FamilyManager {
 					}
 				}
 
+				if (entityListenerData.batch != null && entityListenerData.batch.pending) {
+					entityListenerData.batch.clear();
+					--pendingBatches;
+				}
+
+				entityListenerData.removed = true;
+
 				entityListeners.removeIndex(i--);
 			}
 		}
 	}
 	
 	public void updateFamilyMembership (Entity entity) {
+		updateFamilyMembership(entity, -1);
+	}
+	
+	public void updateFamilyMembership (Entity entity, int componentTypeIndex) {
+		Signature signature = entity.removing ? null : obtainSignature(entity, componentTypeIndex);
+		Bits entityFamilyBits = entity.getFamilyBits();
+		Bits targetFamilyBits = signature != null ? signature.familyBits : emptyBits;
+
+		entity.signature = signature;
+
+		// Entities with the same components belong to the same families, most changes are a lookup.
+		if (entityFamilyBits.equals(targetFamilyBits)) {
+			return;
+		}
+
 		// Find families that the entity was added to/removed from, and fill
 		// the bitmasks with corresponding listener bits.
 		Bits addListenerBits = bitsPool.obtain();
 		Bits removeListenerBits = bitsPool.obtain();
+		Bits changedFamilyBits = bitsPool.obtain();
 
-		for (Family family : entityListenerMasks.keys()) {
-			final int familyIndex = family.getIndex();
-			final Bits entityFamilyBits = entity.getFamilyBits();
+		changedFamilyBits.or(entityFamilyBits);
+		changedFamilyBits.xor(targetFamilyBits);
 
-			boolean belongsToFamily = entityFamilyBits.get(familyIndex);
-			boolean matches = family.matches(entity) && !entity.removing;
+		for (int i = changedFamilyBits.nextSetBit(0); i >= 0; i = changedFamilyBits.nextSetBit(i + 1)) {
+			FamilyData data = i < familyData.size ? familyData.get(i) : null;
 
-			if (belongsToFamily != matches) {
-				final Bits listenersMask = entityListenerMasks.get(family);
-				final Array<Entity> familyEntities = families.get(family);
-				if (matches) {
-					addListenerBits.or(listenersMask);
-					familyEntities.add(entity);
-					entityFamilyBits.set(familyIndex);
-				} else {
-					removeListenerBits.or(listenersMask);
-					familyEntities.removeValue(entity, true);
-					entityFamilyBits.clear(familyIndex);
-				}
+			if (data == null) {
+				entityFamilyBits.clear(i);
+			} else if (targetFamilyBits.get(i)) {
+				addListenerBits.or(data.listenerMask);
+				data.add(entity);
+				entityFamilyBits.set(i);
+			} else {
+				removeListenerBits.or(data.listenerMask);
+				data.remove(entity);
+				entityFamilyBits.clear(i);
 			}
 		}
 
+		changedFamilyBits.clear();
+		bitsPool.free(changedFamilyBits);
+
 		// Notify listeners; set bits match indices of listeners
 		notifying = true;
 		Object[] items = entityListeners.begin();
 
 		try {
 			for (int i = removeListenerBits.nextSetBit(0); i >= 0; i = removeListenerBits.nextSetBit(i + 1)) {
-				((EntityListenerData)items[i]).listener.entityRemoved(entity);
+				notifyRemoved((EntityListenerData)items[i], entity);
 			}
-	
+
 			for (int i = addListenerBits.nextSetBit(0); i >= 0; i = addListenerBits.nextSetBit(i + 1)) {
-				((EntityListenerData)items[i]).listener.entityAdded(entity);
+				notifyAdded((EntityListenerData)items[i], entity);
 			}
 		}
 		finally {
@@ -127,31 +210,521 @@ class FamilyManager {
 			bitsPool.free(addListenerBits);
 			bitsPool.free(removeListenerBits);
 			entityListeners.end();
-			notifying = false;	
+			notifying = false;
+		}
+	}
+	
+	/**
+	 * Adds new entities that all have the same component types to their families. Membership is computed once for the shared
+	 * signature, each family receives all the entities at once and listeners are notified listener by listener,
+	 * {@link BatchEntityListener}s with a single call.
+	 */
+	public void addEntities (Array<Entity> entities) {
+		if (entities.size == 0) {
+			return;
+		}
+
+		Signature signature = obtainSignature(entities.first(), -1);
+		Bits targetFamilyBits = signature.familyBits;
+		Bits addListenerBits = bitsPool.obtain();
+
+		for (int i = targetFamilyBits.nextSetBit(0); i >= 0; i = targetFamilyBits.nextSetBit(i + 1)) {
+			FamilyData data = familyData.get(i);
+			addListenerBits.or(data.listenerMask);
+			data.addAll(entities);
+		}
+
+		for (int i = 0; i < entities.size; ++i) {
+			Entity entity = entities.get(i);
+			entity.signature = signature;
+			entity.getFamilyBits().or(targetFamilyBits);
+		}
+
+		ImmutableArray<Entity> added = null;
+		notifying = true;
+		Object[] items = entityListeners.begin();
+
+		try {
+			for (int i = addListenerBits.nextSetBit(0); i >= 0; i = addListenerBits.nextSetBit(i + 1)) {
+				EntityListener listener = ((EntityListenerData)items[i]).listener;
+
+				if (listener instanceof BatchEntityListener) {
+					if (added == null) {
+						added = new ImmutableArray<Entity>(entities);
+					}
+
+					((BatchEntityListener)listener).entitiesAdded(added);
+					continue;
+				}
+
+				for (int j = 0; j < entities.size; ++j) {
+					listener.entityAdded(entities.get(j));
+				}
+			}
+		}
+		finally {
+			addListenerBits.clear();
+			bitsPool.free(addListenerBits);
+			entityListeners.end();
+			notifying = false;
+		}
+	}
+	
+	/**
+	 * Removes entities that are being removed from the engine from all their families. Each family is processed once, either
+	 * compacted in a single pass or by removing the entities one by one, whichever touches fewer entities. Listeners are
+	 * notified once the family arrays are consistent, {@link BatchEntityListener}s once with all the entities that left their
+	 * family.
+	 */
+	public void removeEntities (Array<Entity> entities) {
+		int[] counts = removedCounts.setSize(familyData.size);
+
+		for (int i = 0; i < familyData.size; ++i) {
+			counts[i] = 0;
+		}
+
+		for (int i = 0; i < entities.size; ++i) {
+			Bits familyBits = entities.get(i).getFamilyBits();
+
+			for (int j = familyBits.nextSetBit(0); j >= 0; j = familyBits.nextSetBit(j + 1)) {
+				++counts[j];
+			}
+		}
+
+		for (int i = 0; i < familyData.size; ++i) {
+			if (counts[i] > 0) {
+				familyData.get(i).removeAll(entities, counts[i]);
+			}
+		}
+
+		Bits removeListenerBits = bitsPool.obtain();
+		Signature listenerBitsSignature = null;
+		beginBatch();
+		notifying = true;
+		Object[] items = entityListeners.begin();
+
+		try {
+			for (int i = 0; i < entities.size; ++i) {
+				Entity entity = entities.get(i);
+				Bits familyBits = entity.getFamilyBits();
+
+				// Entities sharing a signature share their listeners.
+				if (entity.signature == null || entity.signature != listenerBitsSignature) {
+					removeListenerBits.clear();
+
+					for (int j = familyBits.nextSetBit(0); j >= 0; j = familyBits.nextSetBit(j + 1)) {
+						removeListenerBits.or(familyData.get(j).listenerMask);
+					}
+
+					listenerBitsSignature = entity.signature;
+				}
+
+				familyBits.clear();
+				entity.signature = null;
+
+				for (int j = removeListenerBits.nextSetBit(0); j >= 0; j = removeListenerBits.nextSetBit(j + 1)) {
+					notifyRemoved((EntityListenerData)items[j], entity);
+				}
+			}
+		}
+		finally {
+			removeListenerBits.clear();
+			bitsPool.free(removeListenerBits);
+			entityListeners.end();
+			notifying = false;
+			endBatch();
 		}
 	}
 	
-	private ImmutableArray<Entity> registerFamily(Family family) {
-		ImmutableArray<Entity> entitiesInFamily = immutableFamilies.get(family);
+	private void notifyAdded(EntityListenerData data, Entity entity) {
+		if (data.batch != null && batchDepth > 0) {
+			record(data, entity, true);
+		} else {
+			data.listener.entityAdded(entity);
+		}
+	}
+	
+	private void notifyRemoved(EntityListenerData data, Entity entity) {
+		if (data.batch != null && batchDepth > 0) {
+			record(data, entity, false);
+		} else {
+			data.listener.entityRemoved(entity);
+		}
+	}
+	
+	private void record(EntityListenerData data, Entity entity, boolean added) {
+		// Listeners removed while notifying are still in the snapshot being iterated, nothing would deliver their batch.
+		if (data.removed) {
+			return;
+		}
 
-		if (entitiesInFamily == null) {
-			Array<Entity> familyEntities = new Array<Entity>(false, 16);
-			entitiesInFamily = new ImmutableArray<Entity>(familyEntities);
-			families.put(family, familyEntities);
-			immutableFamilies.put(family, entitiesInFamily);
-			entityListenerMasks.put(family, new Bits());
+		ListenerBatch batch = data.batch;
 
-			for (Entity entity : entities){
-				updateFamilyMembership(entity);
+		if (!batch.pending) {
+			batch.pending = true;
+			++pendingBatches;
+		}
+
+		batch.record(entity, added);
+	}
+	
+	private Signature obtainSignature(Entity entity, int componentTypeIndex) {
+		Bits componentBits = entity.getComponentBits();
+		Signature current = entity.signature;
+
+		if (current != null) {
+			if (componentTypeIndex >= 0) {
+				// Fast path, follow the transition edge of the changed component type.
+				Signature next = current.edges.get(componentTypeIndex);
+
+				if (next != null && next.componentMask0 == entity.componentMask0 && next.componentMask1 == entity.componentMask1
+					&& next.componentBits.equals(componentBits)) {
+					return next;
+				}
+			}
+
+			if (current.componentMask0 == entity.componentMask0 && current.componentMask1 == entity.componentMask1
+				&& current.componentBits.equals(componentBits)) {
+				return current;
 			}
 		}
 
-		return entitiesInFamily;
+		int hash = ComponentType.hashBits(componentBits);
+		Signature signature = findSignature(hash, componentBits);
+
+		if (signature == null) {
+			signature = createSignature(hash, componentBits, current, componentTypeIndex);
+		}
+
+		if (current != null && componentTypeIndex >= 0 && current.differsOnlyBy(signature, componentTypeIndex, bitsPool)) {
+			current.edges.put(componentTypeIndex, signature);
+			signature.edges.put(componentTypeIndex, current);
+		}
+
+		return signature;
+	}
+	
+	/** @return The signature for entities with the given component types, entities can be given it as a lookup hint. */
+	Signature getSignature(Bits componentBits) {
+		int hash = ComponentType.hashBits(componentBits);
+		Signature signature = findSignature(hash, componentBits);
+
+		if (signature == null) {
+			signature = createSignature(hash, componentBits, null, -1);
+		}
+
+		return signature;
+	}
+	
+	private Signature findSignature(int hash, Bits componentBits) {
+		Array<Signature> bucket = signaturesByHash.get(hash);
+
+		if (bucket != null) {
+			for (int i = 0; i < bucket.size; ++i) {
+				Signature signature = bucket.get(i);
+
+				if (signature.componentBits.equals(componentBits)) {
+					return signature;
+				}
+			}
+		}
+
+		return null;
+	}
+	
+	private Signature createSignature(int hash, Bits componentBits, Signature neighbour, int componentTypeIndex) {
+		Bits key = new Bits();
+		key.or(componentBits);
+		Signature signature = new Signature(key);
+
+		if (neighbour != null && componentTypeIndex >= 0 && neighbour.differsOnlyBy(signature, componentTypeIndex, bitsPool)) {
+			// Only families mentioning the toggled component type can differ from the neighbour.
+			signature.familyBits.or(neighbour.familyBits);
+			Array<FamilyData> affectedFamilies = componentTypeIndex < familiesByComponent.size
+				? familiesByComponent.get(componentTypeIndex) : null;
+
+			if (affectedFamilies != null) {
+				for (int i = 0; i < affectedFamilies.size; ++i) {
+					signature.evaluate(affectedFamilies.get(i).family);
+				}
+			}
+		} else {
+			for (int i = 0; i < registeredFamilies.size; ++i) {
+				signature.evaluate(registeredFamilies.get(i).family);
+			}
+		}
+
+		Array<Signature> bucket = signaturesByHash.get(hash);
+
+		if (bucket == null) {
+			bucket = new Array<Signature>(false, 1);
+			signaturesByHash.put(hash, bucket);
+		}
+
+		bucket.add(signature);
+		signatures.add(signature);
+		return signature;
+	}
+	
+	private FamilyData registerFamily(Family family) {
+		int index = family.getIndex();
+		FamilyData data = index < familyData.size ? familyData.get(index) : null;
+
+		if (data == null) {
+			data = new FamilyData(family);
+
+			while (familyData.size <= index) {
+				familyData.add(null);
+			}
+
+			familyData.set(index, data);
+			registeredFamilies.add(data);
+			indexFamily(data);
+
+			for (int i = 0; i < signatures.size; ++i) {
+				signatures.get(i).evaluate(family);
+			}
+
+			populateFamily(data);
+		}
+
+		return data;
+	}
+	
+	/**
+	 * Adds the entities to a family that was just registered. No other family changes and the new one has no listeners yet, so
+	 * membership is a lookup in the signature of each entity, evaluated once per signature above.
+	 */
+	private void populateFamily(FamilyData data) {
+		int familyIndex = data.family.getIndex();
+
+		for (int i = 0; i < entities.size(); ++i) {
+			Entity entity = entities.get(i);
+
+			if (entity.removing) {
+				continue;
+			}
+
+			Signature signature = entity.signature;
+
+			if (signature == null) {
+				signature = obtainSignature(entity, -1);
+				entity.signature = signature;
+			}
+
+			if (signature.familyBits.get(familyIndex)) {
+				data.add(entity);
+				entity.getFamilyBits().set(familyIndex);
+			}
+		}
+	}
+	
+	private void indexFamily(FamilyData data) {
+		Family family = data.family;
+		Bits componentBits = bitsPool.obtain();
+		componentBits.or(family.getAll());
+		componentBits.or(family.getOne());
+		componentBits.or(family.getExclude());
+
+		for (int i = componentBits.nextSetBit(0); i >= 0; i = componentBits.nextSetBit(i + 1)) {
+			while (familiesByComponent.size <= i) {
+				familiesByComponent.add(null);
+			}
+
+			Array<FamilyData> componentFamilies = familiesByComponent.get(i);
+
+			if (componentFamilies == null) {
+				componentFamilies = new Array<FamilyData>(false, 8);
+				familiesByComponent.set(i, componentFamilies);
+			}
+
+			componentFamilies.add(data);
+		}
+
+		componentBits.clear();
+		bitsPool.free(componentBits);
+	}
+	
+	private static class FamilyData {
+		public final Family family;
+		public final Array<Entity> entities = new Array<Entity>(false, 16);
+		public final ImmutableArray<Entity> immutableEntities = new ImmutableArray<Entity>(entities);
+		public final ObjectIntMap<Entity> positions = new ObjectIntMap<Entity>();
+		public final Bits listenerMask = new Bits();
+
+		public FamilyData(Family family) {
+			this.family = family;
+		}
+
+		public void add(Entity entity) {
+			positions.put(entity, entities.size);
+			entities.add(entity);
+		}
+
+		public void addAll(Array<Entity> added) {
+			entities.ensureCapacity(added.size);
+
+			for (int i = 0; i < added.size; ++i) {
+				Entity entity = added.get(i);
+				positions.put(entity, entities.size);
+				entities.add(entity);
+			}
+		}
+
+		public void removeAll(Array<Entity> removed, int count) {
+			if (count == entities.size) {
+				entities.clear();
+				positions.clear();
+			} else if (entities.size <= removed.size) {
+				// Single pass keeping the entities that are not being removed.
+				int size = 0;
+
+				for (int i = 0; i < entities.size; ++i) {
+					Entity entity = entities.get(i);
+
+					if (entity.removing) {
+						positions.remove(entity, -1);
+					} else {
+						if (size != i) {
+							entities.set(size, entity);
+							positions.put(entity, size);
+						}
+						++size;
+					}
+				}
+
+				entities.truncate(size);
+			} else {
+				int familyIndex = family.getIndex();
+
+				for (int i = 0; i < removed.size; ++i) {
+					Entity entity = removed.get(i);
+
+					if (entity.getFamilyBits().get(familyIndex)) {
+						remove(entity);
+					}
+				}
+			}
+		}
+
+		public void remove(Entity entity) {
+			// Swap remove, the last entity takes the place of the removed one.
+			int position = positions.remove(entity, -1);
+			Entity last = entities.peek();
+			entities.removeIndex(position);
+
+			if (last != entity) {
+				positions.put(last, position);
+			}
+		}
+	}
+	
+	/**
+	 * Unique set of component types within this manager, caching the families its entities belong to. Signatures are linked
+	 * by the component type that turns one into the other so single component changes usually skip the hash lookup.
+	 */
+	static class Signature {
+		final Bits componentBits;
+		final long componentMask0;
+		final long componentMask1;
+		final Bits familyBits = new Bits();
+		final IntMap<Signature> edges = new IntMap<Signature>();
+
+		Signature(Bits componentBits) {
+			this.componentBits = componentBits;
+			this.componentMask0 = ComponentType.getMask(componentBits, 0);
+			this.componentMask1 = ComponentType.getMask(componentBits, 1);
+		}
+
+		void evaluate(Family family) {
+			if (family.matches(componentMask0, componentMask1, componentBits)) {
+				familyBits.set(family.getIndex());
+			} else {
+				familyBits.clear(family.getIndex());
+			}
+		}
+
+		boolean differsOnlyBy(Signature other, int componentTypeIndex, Pool<Bits> bitsPool) {
+			Bits toggled = bitsPool.obtain();
+			toggled.or(componentBits);
+			toggled.flip(componentTypeIndex);
+			boolean result = toggled.equals(other.componentBits);
+			toggled.clear();
+			bitsPool.free(toggled);
+			return result;
+		}
 	}
 	
 	private static class EntityListenerData {
 		public EntityListener listener;
 		public int priority;
+		public Family family;
+		/** Changes waiting to be delivered, only for {@link BatchEntityListener}s. */
+		public ListenerBatch batch;
+		public boolean removed;
+	}
+	
+	/**
+	 * Membership changes of a family collected for a {@link BatchEntityListener}. Only the first change of each entity is
+	 * recorded, whether the entity entered or left the family is decided on delivery, from its membership at that point.
+	 */
+	private static class ListenerBatch {
+		public final Array<Entity> added = new Array<Entity>(false, 16);
+		public final Array<Entity> removed = new Array<Entity>(false, 16);
+		public final ObjectSet<Entity> recorded = new ObjectSet<Entity>();
+		public final Array<Entity> deliveredAdded = new Array<Entity>(false, 16);
+		public final Array<Entity> deliveredRemoved = new Array<Entity>(false, 16);
+		public final ImmutableArray<Entity> immutableAdded = new ImmutableArray<Entity>(deliveredAdded);
+		public final ImmutableArray<Entity> immutableRemoved = new ImmutableArray<Entity>(deliveredRemoved);
+		public boolean pending;
+
+		public void record(Entity entity, boolean wasAdded) {
+			if (recorded.add(entity)) {
+				(wasAdded ? added : removed).add(entity);
+			}
+		}
+
+		public void deliver(BatchEntityListener listener, int familyIndex) {
+			for (int i = 0; i < removed.size; ++i) {
+				Entity entity = removed.get(i);
+
+				if (!entity.getFamilyBits().get(familyIndex)) {
+					deliveredRemoved.add(entity);
+				}
+			}
+
+			for (int i = 0; i < added.size; ++i) {
+				Entity entity = added.get(i);
+
+				if (entity.getFamilyBits().get(familyIndex)) {
+					deliveredAdded.add(entity);
+				}
+			}
+
+			// Listeners may record new changes while being notified, those are delivered in a later round.
+			clear();
+
+			try {
+				if (deliveredRemoved.size > 0) {
+					listener.entitiesRemoved(immutableRemoved);
+				}
+
+				if (deliveredAdded.size > 0) {
+					listener.entitiesAdded(immutableAdded);
+				}
+			}
+			finally {
+				deliveredRemoved.clear();
+				deliveredAdded.clear();
+			}
+		}
+
+		public void clear() {
+			added.clear();
+			removed.clear();
+			recorded.clear();
+			pending = false;
+		}
 	}
 	
 	private static class BitsPool extends Pool<Bits> {
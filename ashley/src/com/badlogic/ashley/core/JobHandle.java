@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.core;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Tracks a {@link Job} scheduled with a {@link JobScheduler}, to wait for it or to make other jobs depend on it. Handles are
+ * reused by the scheduler once {@link JobScheduler#completeAll()} returns, they must not be kept past that point. Not available
+ * on GWT.
+ */
+public final class JobHandle {
+	final JobScheduler scheduler;
+	final Task task = new Task();
+	final AtomicInteger pending = new AtomicInteger();
+	final Array<JobHandle> dependents = new Array<JobHandle>(false, 4, JobHandle.class);
+	Job job;
+	boolean done;
+	volatile Throwable failure;
+	volatile Throwable dependencyFailure;
+
+	JobHandle (JobScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/** @return Whether the job ran, or was skipped because one of its dependencies failed. */
+	public boolean isDone () {
+		synchronized (this) {
+			return done;
+		}
+	}
+
+	/**
+	 * Waits for the job and its dependencies to be done, the calling pool thread runs other jobs in the meantime.
+	 * @throws RuntimeException if the job or one of its dependencies failed.
+	 */
+	public void complete () {
+		task.join();
+
+		Throwable t = failure;
+
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException)t;
+		}
+		if (t instanceof Error) {
+			throw (Error)t;
+		}
+		if (t != null) {
+			throw new RuntimeException(t);
+		}
+	}
+
+	void reset () {
+		task.reinitialize();
+		pending.set(0);
+		dependents.clear();
+		job = null;
+		done = false;
+		failure = null;
+		dependencyFailure = null;
+	}
+
+	class Task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void compute () {
+			scheduler.run(JobHandle.this);
+		}
+	}
+}
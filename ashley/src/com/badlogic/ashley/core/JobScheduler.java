@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.core;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * Runs fine grained {@link Job}s on a {@link ForkJoinPool}, whose threads each have a work-stealing deque: jobs scheduled from
+ * a job go to the deque of the thread running it and idle threads steal from the others. A job runs once all the jobs it depends
+ * on are done, and is skipped, failing the same way, if one of them failed.
+ * <ul>
+ * <li>Jobs can be scheduled from any thread, including from jobs.</li>
+ * <li>{@link #completeAll()} waits for every scheduled job, then recycles their {@link JobHandle}s. A {@link ScheduledEngine}
+ * calls it at each sync point, so jobs scheduled by systems are done before deferred entity operations are processed.</li>
+ * </ul>
+ * Not available on GWT.
+ */
+public class JobScheduler {
+	private final ForkJoinPool pool;
+	private final Pool<JobHandle> handlePool = new Pool<JobHandle>() {
+		@Override
+		protected JobHandle newObject () {
+			return new JobHandle(JobScheduler.this);
+		}
+	};
+	private final Array<JobHandle> scheduled = new Array<JobHandle>(false, 64, JobHandle.class);
+	private final Object lock = new Object();
+	private final Waiter waiter = new Waiter();
+	private int running;
+	private Throwable failure;
+
+	/**
+	 * Creates a new JobScheduler.
+	 * @param pool runs the jobs.
+	 */
+	public JobScheduler (ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/** Schedules the job to run as soon as possible. */
+	public JobHandle schedule (Job job) {
+		JobHandle handle = obtain(job);
+		release(handle);
+		return handle;
+	}
+
+	/** Schedules the job to run once the given one is done. */
+	public JobHandle schedule (Job job, JobHandle dependency) {
+		JobHandle handle = obtain(job);
+		depend(handle, dependency);
+		release(handle);
+		return handle;
+	}
+
+	/** Schedules the job to run once all the given ones are done. */
+	public JobHandle schedule (Job job, JobHandle... dependencies) {
+		JobHandle handle = obtain(job);
+
+		for (int i = 0; i < dependencies.length; ++i) {
+			depend(handle, dependencies[i]);
+		}
+
+		release(handle);
+		return handle;
+	}
+
+	/**
+	 * Waits for all the scheduled jobs, including those scheduled while waiting, and recycles their handles. Must not be called
+	 * from a job.
+	 * @throws RuntimeException if a job failed, the first failure is rethrown.
+	 */
+	public void completeAll () {
+		boolean interrupted = false;
+		Throwable t;
+
+		while (true) {
+			try {
+				// Lets the pool add a thread meanwhile when called from one of its threads, e.g. by an engine updated on it, so
+				// the jobs left in the deque of the waiting thread are still run.
+				ForkJoinPool.managedBlock(waiter);
+				break;
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		synchronized (lock) {
+			t = failure;
+			failure = null;
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (handlePool) {
+			for (int i = 0; i < scheduled.size; ++i) {
+				JobHandle handle = scheduled.get(i);
+				// The task may still be returning from run(), it can only be reinitialized once completed.
+				handle.task.quietlyJoin();
+				handle.reset();
+				handlePool.free(handle);
+			}
+
+			scheduled.clear();
+		}
+
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException)t;
+		}
+		if (t instanceof Error) {
+			throw (Error)t;
+		}
+		if (t != null) {
+			throw new RuntimeException(t);
+		}
+	}
+
+	/**
+	 * @return The pool shared by the engines, worlds and systems created without a pool or executor of their own, with one
+	 * thread per available processor.
+	 */
+	public static ForkJoinPool getDefaultPool () {
+		return ConcurrentRunner.getDefaultPool();
+	}
+
+	/** @return The pool running the jobs. */
+	public ForkJoinPool getPool () {
+		return pool;
+	}
+
+	void run (JobHandle handle) {
+		Throwable t = handle.dependencyFailure;
+
+		if (t == null) {
+			try {
+				handle.job.execute();
+			}
+			catch (Throwable e) {
+				t = e;
+			}
+		}
+
+		handle.failure = t;
+
+		synchronized (handle) {
+			handle.done = true;
+		}
+
+		// No dependents are added once the handle is done.
+		Array<JobHandle> dependents = handle.dependents;
+
+		for (int i = 0; i < dependents.size; ++i) {
+			JobHandle dependent = dependents.get(i);
+
+			if (t != null && dependent.dependencyFailure == null) {
+				dependent.dependencyFailure = t;
+			}
+
+			release(dependent);
+		}
+
+		synchronized (lock) {
+			if (t != null && failure == null) {
+				failure = t;
+			}
+
+			if (--running == 0) {
+				lock.notifyAll();
+			}
+		}
+	}
+
+	private JobHandle obtain (Job job) {
+		JobHandle handle;
+
+		synchronized (handlePool) {
+			handle = handlePool.obtain();
+			scheduled.add(handle);
+		}
+
+		synchronized (lock) {
+			++running;
+		}
+
+		handle.job = job;
+		// Held until all dependencies are registered.
+		handle.pending.set(1);
+		return handle;
+	}
+
+	private void depend (JobHandle handle, JobHandle dependency) {
+		synchronized (dependency) {
+			if (!dependency.done) {
+				handle.pending.incrementAndGet();
+				dependency.dependents.add(handle);
+				return;
+			}
+		}
+
+		if (dependency.failure != null && handle.dependencyFailure == null) {
+			handle.dependencyFailure = dependency.failure;
+		}
+	}
+
+	private void release (JobHandle handle) {
+		if (handle.pending.decrementAndGet() == 0) {
+			if (ForkJoinTask.getPool() == pool) {
+				handle.task.fork();
+			}
+			else {
+				pool.execute(handle.task);
+			}
+		}
+	}
+
+	private class Waiter implements ForkJoinPool.ManagedBlocker {
+		@Override
+		public boolean block () throws InterruptedException {
+			synchronized (lock) {
+				while (running > 0) {
+					lock.wait();
+				}
+			}
+
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable () {
+			synchronized (lock) {
+				return running == 0;
+			}
+		}
+	}
+}
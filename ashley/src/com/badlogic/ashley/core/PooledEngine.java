@@ -76,6 +76,16 @@ public class PooledEngine extends Engine {
 		return componentPools.obtain(componentType);
 	}
 
+	@Override
+	void freeComponent (Component component) {
+		componentPools.free(component);
+	}
+
+	@Override
+	Component createComponent (Class<? extends Component> componentType, EntityTemplate.ComponentFactory<Component> factory) {
+		return componentPools.obtain(componentType, factory);
+	}
+
 	/**
 	 * Removes all free entities and components from their pools. Although this will likely result in garbage collection, it will
 	 * free up memory.
@@ -89,17 +99,49 @@ public class PooledEngine extends Engine {
 	protected void removeEntityInternal (Entity entity) {
 		super.removeEntityInternal(entity);
 
-		if (entity instanceof PooledEntity) {
+		// Migrating entities live on in another engine.
+		if (entity instanceof PooledEntity && ((PooledEntity)entity).engine == this && !entity.migrating) {
 			entityPool.free((PooledEntity)entity);
 		}
 	}
 
-	private class PooledEntity extends Entity implements Poolable {
+	@Override
+	protected void removeEntitiesInternal (Array<Entity> entities) {
+		super.removeEntitiesInternal(entities);
+
+		for (int i = 0; i < entities.size; ++i) {
+			Entity entity = entities.get(i);
+
+			if (entity instanceof PooledEntity && ((PooledEntity)entity).engine == this) {
+				entityPool.free((PooledEntity)entity);
+			}
+		}
+	}
+
+	/**
+	 * Hands a pooled entity migrating to the target engine over to it, so that its components, and the entity itself once
+	 * removed, return to the pools of the target, or are no longer pooled if the target is not a PooledEngine. Pools are only
+	 * ever used by the thread updating their engine.
+	 */
+	static void migrated (Entity entity, Engine target) {
+		if (entity instanceof PooledEntity) {
+			((PooledEntity)entity).engine = target instanceof PooledEngine ? (PooledEngine)target : null;
+		}
+	}
+
+	private static class PooledEntity extends Entity implements Poolable {
+		/** Engine whose pools the entity and its components return to, null once migrated to an engine without pools. */
+		PooledEngine engine;
+
+		PooledEntity (PooledEngine engine) {
+			this.engine = engine;
+		}
+
 		@Override
 		Component removeInternal(Class<? extends Component> componentClass) {
 			Component removed = super.removeInternal(componentClass);
-			if (removed != null) {
-				componentPools.free(removed);
+			if (removed != null && engine != null) {
+				engine.componentPools.free(removed);
 			}
 
 			return removed;
@@ -124,7 +166,7 @@ public class PooledEngine extends Engine {
 
 		@Override
 		protected PooledEntity newObject () {
-			return new PooledEntity();
+			return new PooledEntity(PooledEngine.this);
 		}
 
 		/**
@@ -149,6 +191,21 @@ public class PooledEngine extends Engine {
 		}
 
 		public <T> T obtain (Class<T> type) {
+			return (T)getPool(type).obtain();
+		}
+
+		/** Takes a free component if there is one, only creates it with the factory, avoiding reflection, otherwise. */
+		public Component obtain (Class<? extends Component> type, EntityTemplate.ComponentFactory<Component> factory) {
+			ReflectionPool pool = getPool(type);
+
+			if (factory != null && pool.getFree() == 0) {
+				return factory.create();
+			}
+
+			return (Component)pool.obtain();
+		}
+
+		private ReflectionPool getPool (Class<?> type) {
 			ReflectionPool pool = pools.get(type);
 
 			if (pool == null) {
@@ -156,7 +213,7 @@ public class PooledEngine extends Engine {
 				pools.put(type, pool);
 			}
 
-			return (T)pool.obtain();
+			return pool;
 		}
 
 		public void free (Object object) {
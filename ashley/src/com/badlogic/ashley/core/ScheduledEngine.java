@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import com.badlogic.ashley.core.ComponentOperationHandler.ComponentAccessValidator;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * {@link Engine} that runs systems concurrently, based on the components they declared to read and write via
+ * {@link EntitySystem#reads(Class...)} and {@link EntitySystem#writes(Class...)}. A system depends on every system of higher
+ * priority it conflicts with, one writing a component type the other one accesses, and systems that declared nothing conflict
+ * with all others. Systems are grouped in batches: a batch contains the systems whose dependencies all belong to earlier
+ * batches, and its systems are updated concurrently on the {@link Executor}.
+ * <ul>
+ * <li>The end of each batch is a sync point: the {@link Job}s scheduled via {@link #schedule(Job)} are completed, the
+ * {@link EntitySystem#getCommandBuffer() command buffers} of its systems are played back in priority order, then the delayed
+ * entity and component operations are processed.</li>
+ * <li>Systems sharing a batch with others must record structural changes in their command buffer, and must not register new
+ * families while updating.</li>
+ * <li>In {@link #setValidating(boolean) validating} mode, accessing a component type a system did not declare, or making a
+ * structural change directly from a concurrently running system, throws an {@link IllegalStateException}.</li>
+ * </ul>
+ * Not available on GWT.
+ */
+public class ScheduledEngine extends Engine {
+	private final Executor executor;
+	private final ConcurrentRunner runner;
+	private volatile JobScheduler jobScheduler;
+	private final Array<Array<SystemTask>> batches = new Array<Array<SystemTask>>();
+	private final ThreadLocal<SystemTask> runningTask = new ThreadLocal<SystemTask>();
+	private final AccessValidator accessValidator = new AccessValidator();
+	private boolean scheduleDirty = true;
+	private boolean validating;
+
+	/**
+	 * Creates a new ScheduledEngine running systems on a pool with one thread per available processor, shared by all the
+	 * engines and worlds created without an executor.
+	 */
+	public ScheduledEngine () {
+		this(ConcurrentRunner.getDefaultPool());
+	}
+
+	/**
+	 * Creates a new ScheduledEngine.
+	 * @param executor runs the systems of a batch, except for one which is updated on the thread calling {@link #update(float)}.
+	 */
+	public ScheduledEngine (Executor executor) {
+		super();
+
+		this.executor = executor;
+		runner = new ConcurrentRunner(executor);
+	}
+
+	/**
+	 * Sets whether the engine checks every component access of its entities against the declarations of the system updating,
+	 * meant for development. Accesses made outside of system updates are not checked.
+	 */
+	public void setValidating (boolean validating) {
+		this.validating = validating;
+		setAccessValidator(validating ? accessValidator : null);
+	}
+
+	/** @return Whether the engine checks component accesses against the system declarations. */
+	public boolean isValidating () {
+		return validating;
+	}
+
+	/**
+	 * Schedules a job on the engine's {@link JobScheduler}, typically from a system fanning out work. Jobs are done before the
+	 * next sync point.
+	 */
+	public JobHandle schedule (Job job) {
+		return getJobScheduler().schedule(job);
+	}
+
+	/** Schedules a job to run once the given one is done, see {@link #schedule(Job)}. */
+	public JobHandle schedule (Job job, JobHandle dependency) {
+		return getJobScheduler().schedule(job, dependency);
+	}
+
+	/** Schedules a job to run once all the given ones are done, see {@link #schedule(Job)}. */
+	public JobHandle schedule (Job job, JobHandle... dependencies) {
+		return getJobScheduler().schedule(job, dependencies);
+	}
+
+	/**
+	 * @return The scheduler running the jobs of the engine's systems, on the engine's executor if it is a {@link ForkJoinPool},
+	 * on the shared pool otherwise.
+	 */
+	public JobScheduler getJobScheduler () {
+		synchronized (runner) {
+			if (jobScheduler == null) {
+				jobScheduler = new JobScheduler(executor instanceof ForkJoinPool ? (ForkJoinPool)executor
+					: ConcurrentRunner.getDefaultPool());
+			}
+
+			return jobScheduler;
+		}
+	}
+
+	/** @return Number of batches the systems are currently grouped in. */
+	public int getBatchCount () {
+		buildSchedule();
+		return batches.size;
+	}
+
+	/** @return The systems of the given batch, in priority order. */
+	public ImmutableArray<EntitySystem> getBatch (int index) {
+		buildSchedule();
+		Array<SystemTask> tasks = batches.get(index);
+		Array<EntitySystem> systems = new Array<EntitySystem>(true, tasks.size, EntitySystem.class);
+
+		for (int i = 0; i < tasks.size; ++i) {
+			systems.add(tasks.get(i).system);
+		}
+
+		return new ImmutableArray<EntitySystem>(systems);
+	}
+
+	@Override
+	public void addSystem (EntitySystem system) {
+		super.addSystem(system);
+		scheduleDirty = true;
+	}
+
+	@Override
+	public void removeSystem (EntitySystem system) {
+		super.removeSystem(system);
+		scheduleDirty = true;
+	}
+
+	@Override
+	public void removeAllSystems () {
+		super.removeAllSystems();
+		scheduleDirty = true;
+	}
+
+	@Override
+	public void addEntity (Entity entity) {
+		checkStructuralChange();
+		super.addEntity(entity);
+	}
+
+	@Override
+	public void removeEntity (Entity entity) {
+		checkStructuralChange();
+		super.removeEntity(entity);
+	}
+
+	@Override
+	public void removeAllEntities (Family family) {
+		checkStructuralChange();
+		super.removeAllEntities(family);
+	}
+
+	@Override
+	public void removeAllEntities () {
+		checkStructuralChange();
+		super.removeAllEntities();
+	}
+
+	@Override
+	public void playback (EntityCommandBuffer buffer) {
+		checkStructuralChange();
+		super.playback(buffer);
+	}
+
+	@Override
+	void updateSystems (ImmutableArray<EntitySystem> systems, float deltaTime) {
+		buildSchedule();
+
+		for (int i = 0; i < batches.size; ++i) {
+			Array<SystemTask> batch = batches.get(i);
+
+			try {
+				runBatch(batch, deltaTime);
+			}
+			finally {
+				// Jobs may still be using the entities.
+				if (jobScheduler != null) {
+					jobScheduler.completeAll();
+				}
+			}
+
+			for (int j = 0; j < batch.size; ++j) {
+				processSystemOperations(batch.get(j).system);
+			}
+		}
+	}
+
+	private void buildSchedule () {
+		if (!scheduleDirty) {
+			return;
+		}
+
+		ImmutableArray<EntitySystem> systems = getSystems();
+		int[] levels = new int[systems.size()];
+		batches.clear();
+
+		for (int i = 0; i < systems.size(); ++i) {
+			EntitySystem system = systems.get(i);
+			int level = 0;
+
+			for (int j = 0; j < i; ++j) {
+				if (levels[j] >= level && system.conflictsWith(systems.get(j))) {
+					level = levels[j] + 1;
+				}
+			}
+
+			levels[i] = level;
+
+			if (level == batches.size) {
+				batches.add(new Array<SystemTask>(false, 4, SystemTask.class));
+			}
+
+			batches.get(level).add(new SystemTask(system));
+		}
+
+		for (int i = 0; i < batches.size; ++i) {
+			Array<SystemTask> batch = batches.get(i);
+
+			for (int j = 0; j < batch.size; ++j) {
+				batch.get(j).concurrent = batch.size > 1;
+			}
+		}
+
+		scheduleDirty = false;
+	}
+
+	private void runBatch (Array<SystemTask> batch, float deltaTime) {
+		for (int i = 0; i < batch.size; ++i) {
+			batch.get(i).deltaTime = deltaTime;
+		}
+
+		runner.run(batch);
+	}
+
+	private void checkStructuralChange () {
+		if (!validating) {
+			return;
+		}
+
+		SystemTask task = runningTask.get();
+
+		if (task != null && task.concurrent) {
+			throw new IllegalStateException(task.system.getClass().getName()
+				+ " runs concurrently with other systems, record structural changes in its command buffer.");
+		}
+	}
+
+	private class SystemTask implements Runnable {
+		final EntitySystem system;
+		boolean concurrent;
+		float deltaTime;
+
+		SystemTask (EntitySystem system) {
+			this.system = system;
+		}
+
+		@Override
+		public void run () {
+			if (!system.checkProcessing()) {
+				return;
+			}
+
+			boolean tracked = validating;
+
+			if (tracked) {
+				runningTask.set(this);
+			}
+
+			try {
+				system.update(deltaTime);
+			}
+			finally {
+				if (tracked) {
+					runningTask.remove();
+				}
+			}
+		}
+	}
+
+	private class AccessValidator implements ComponentAccessValidator {
+		@Override
+		public void checkAccess (Entity entity, int componentTypeIndex, boolean write) {
+			SystemTask task = runningTask.get();
+
+			if (task == null) {
+				return;
+			}
+
+			if (!task.system.canAccess(componentTypeIndex, write)) {
+				throw new IllegalStateException(task.system.getClass().getName() + (write ? " writes " : " reads ")
+					+ ComponentType.getClassFor(componentTypeIndex).getName() + " without declaring it.");
+			}
+
+			// Only additions and removals are reported as writes.
+			if (write) {
+				checkStructuralChange();
+			}
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.core;
+
+import java.util.concurrent.Executor;
+
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Steps several {@link Engine} shards, e.g. the regions of a large map, in parallel on an {@link Executor}, and moves entities
+ * between them. Shards do not share entities, so each one is updated by a single thread as usual, and {@link ComponentType}s
+ * and {@link Family}s may be looked up from any thread.
+ * <ul>
+ * <li>{@link #migrate(Entity, Engine)} may be called from any thread, migrations are applied at the sync point following the
+ * update of all the shards, in the order they were requested.</li>
+ * <li>A migrating entity is kept with its components: its old shard notifies listeners of its removal and its new shard of its
+ * addition, and it gets a new handle.</li>
+ * <li>Entities created by a {@link PooledEngine} are handed over to their new shard: they and their components return to its
+ * pools if it is a {@link PooledEngine}, and are no longer pooled otherwise.</li>
+ * </ul>
+ * Not available on GWT.
+ */
+public class ShardedWorld {
+	private final ConcurrentRunner runner;
+	private final Array<Engine> shards = new Array<Engine>(false, 8, Engine.class);
+	private final ImmutableArray<Engine> immutableShards = new ImmutableArray<Engine>(shards);
+	private final Array<ShardTask> tasks = new Array<ShardTask>(false, 8, ShardTask.class);
+	private final Array<Entity> migratingEntities = new Array<Entity>(false, 16, Entity.class);
+	private final Array<Engine> migrationTargets = new Array<Engine>(false, 16, Engine.class);
+	private boolean updating;
+
+	/**
+	 * Creates a new ShardedWorld updating its shards on a pool with one thread per available processor, shared by all the
+	 * engines and worlds created without an executor.
+	 */
+	public ShardedWorld () {
+		this(ConcurrentRunner.getDefaultPool());
+	}
+
+	/**
+	 * Creates a new ShardedWorld.
+	 * @param executor updates the shards, except for one which is updated on the thread calling {@link #update(float)}.
+	 */
+	public ShardedWorld (Executor executor) {
+		runner = new ConcurrentRunner(executor);
+	}
+
+	/** Adds the shard to this world, it is updated from the next {@link #update(float)} on. */
+	public void addShard (Engine shard) {
+		checkNotUpdating();
+
+		if (!shards.contains(shard, true)) {
+			shards.add(shard);
+			tasks.add(new ShardTask(shard));
+		}
+	}
+
+	/** Removes the shard from this world, pending migrations from or to it are dropped. */
+	public void removeShard (Engine shard) {
+		checkNotUpdating();
+
+		int index = shards.indexOf(shard, true);
+
+		if (index >= 0) {
+			shards.removeIndex(index);
+			tasks.removeIndex(index);
+		}
+	}
+
+	/** @return immutable array of the shards of this world. */
+	public ImmutableArray<Engine> getShards () {
+		return immutableShards;
+	}
+
+	/** @return The shard the entity belongs to, null if it belongs to none. */
+	public Engine getShard (Entity entity) {
+		for (int i = 0; i < shards.size; ++i) {
+			Engine shard = shards.get(i);
+
+			if (shard.getEntity(entity.getHandle()) == entity) {
+				return shard;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Requests the entity to be moved to the target shard at the next sync point. Can be called from any thread, typically by a
+	 * system of the entity's current shard. The request is dropped if the entity no longer belongs to a shard by then.
+	 */
+	public void migrate (Entity entity, Engine target) {
+		synchronized (migratingEntities) {
+			migratingEntities.add(entity);
+			migrationTargets.add(target);
+		}
+	}
+
+	/**
+	 * Updates all the shards in parallel and waits for them, then applies the requested migrations.
+	 * @param deltaTime The time passed since the last frame.
+	 */
+	public void update (float deltaTime) {
+		checkNotUpdating();
+		updating = true;
+
+		try {
+			for (int i = 0; i < tasks.size; ++i) {
+				tasks.get(i).deltaTime = deltaTime;
+			}
+
+			runner.run(tasks);
+		}
+		finally {
+			updating = false;
+		}
+
+		processMigrations();
+	}
+
+	/** Applies the requested migrations right away, only call this while no shard is updating. */
+	public void processMigrations () {
+		checkNotUpdating();
+
+		// Listeners of the shards may request further migrations, they are processed in the same pass.
+		for (int i = 0;; ++i) {
+			Entity entity;
+			Engine target;
+
+			synchronized (migratingEntities) {
+				if (i == migratingEntities.size) {
+					migratingEntities.clear();
+					migrationTargets.clear();
+					return;
+				}
+
+				entity = migratingEntities.get(i);
+				target = migrationTargets.get(i);
+			}
+
+			Engine source = getShard(entity);
+
+			if (source != null && source != target && shards.contains(target, true)) {
+				source.detachEntity(entity);
+				PooledEngine.migrated(entity, target);
+				target.addEntity(entity);
+			}
+		}
+	}
+
+	private void checkNotUpdating () {
+		if (updating) {
+			throw new IllegalStateException("Cannot change a ShardedWorld while it is updating.");
+		}
+	}
+
+	private static class ShardTask implements Runnable {
+		final Engine shard;
+		float deltaTime;
+
+		ShardTask (Engine shard) {
+			this.shard = shard;
+		}
+
+		@Override
+		public void run () {
+			shard.update(deltaTime);
+		}
+	}
+}
@@ -20,14 +20,14 @@ import com.badlogic.gdx.utils.SnapshotArray;
 
 /**
  * A Signal is a basic event class that can dispatch an event to multiple listeners. It uses generics to allow any type of object
- * to be passed around on dispatch.
+ * to be passed around on dispatch. The listener array is only allocated once a listener is added, every {@link
+ * com.badlogic.ashley.core.Entity} has two signals and most of them are never subscribed to.
  * @author Stefan Bachmann
  */
 public class Signal<T> {
 	private SnapshotArray<Listener<T>> listeners;
 
 	public Signal () {
-		listeners = new SnapshotArray<Listener<T>>();
 	}
 
 	/**
@@ -35,6 +35,10 @@ public class Signal<T> {
 	 * @param listener The Listener to be added
 	 */
 	public void add (Listener<T> listener) {
+		if (listeners == null) {
+			listeners = new SnapshotArray<Listener<T>>(true, 4);
+		}
+
 		listeners.add(listener);
 	}
 
@@ -43,12 +47,16 @@ public class Signal<T> {
 	 * @param listener The Listener to remove
 	 */
 	public void remove (Listener<T> listener) {
-		listeners.removeValue(listener, true);
+		if (listeners != null) {
+			listeners.removeValue(listener, true);
+		}
 	}
 
 	/** Removes all listeners attached to this {@link Signal}. */
 	public void removeAllListeners () {
-		listeners.clear();
+		if (listeners != null) {
+			listeners.clear();
+		}
 	}
 
 	/**
@@ -56,6 +64,10 @@ public class Signal<T> {
 	 * @param object The object to send off
 	 */
 	public void dispatch (T object) {
+		if (listeners == null || listeners.size == 0) {
+			return;
+		}
+
 		final Object[] items = listeners.begin();
 		for (int i = 0, n = listeners.size; i < n; i++) {
 			Listener<T> listener = (Listener<T>)items[i];
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.systems;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityCommandBuffer;
+import com.badlogic.ashley.core.EntitySystem;
+
+/**
+ * An EntitySystem running blocking work, like I/O or planning, off the engine thread. Work is started in one update, runs on the
+ * {@link Executor} while the engine keeps updating, and is joined at the first update at least {@link #getSyncFrames()}
+ * updates later in which it has finished, so the engine never waits for it.
+ * <ul>
+ * <li>{@link #prepare(float)} runs on the engine thread and decides whether to start work, copy the inputs of the work there.</li>
+ * <li>{@link #process(EntityCommandBuffer)} runs on the executor and must not touch the engine or components other systems
+ * use, changes to entities are recorded in the given buffer. Take the {@link Entity#getHandle() handles} of the entities to
+ * change in {@link #prepare(float)} and record with them, e.g. {@code commands.add(handle, component)}.</li>
+ * <li>Upon joining, the recorded commands are moved to the system's {@link #getCommandBuffer() command buffer}, which the
+ * engine plays back right after the update, and {@link #completed()} is called on the engine thread. Commands for entities
+ * removed from the engine since their handles were taken are dropped, see {@link EntityCommandBuffer}.</li>
+ * </ul>
+ * On Java 21 and later, pass {@code Executors.newVirtualThreadPerTaskExecutor()} to run the work on virtual threads. Not
+ * available on GWT.
+ */
+public abstract class AsyncEntitySystem extends EntitySystem {
+	private static ExecutorService defaultExecutor;
+
+	private final Executor executor;
+	private final int syncFrames;
+	private Work work;
+	private EntityCommandBuffer spareBuffer;
+
+	/** Instantiates a system running its work on a shared pool of daemon threads, joined one update after it started. */
+	public AsyncEntitySystem () {
+		this(0);
+	}
+
+	/**
+	 * Instantiates a system running its work on a shared pool of daemon threads, joined one update after it started.
+	 * @param priority The priority to execute this system with (lower means higher priority)
+	 */
+	public AsyncEntitySystem (int priority) {
+		this(priority, null, 1);
+	}
+
+	/**
+	 * Instantiates a system.
+	 * @param priority The priority to execute this system with (lower means higher priority)
+	 * @param executor Runs the work, null to use a shared pool of daemon threads
+	 * @param syncFrames Number of updates after the one starting the work at which it is joined at the earliest
+	 */
+	public AsyncEntitySystem (int priority, Executor executor, int syncFrames) {
+		super(priority);
+
+		if (syncFrames < 1) {
+			throw new IllegalArgumentException("syncFrames must be at least 1: " + syncFrames);
+		}
+
+		this.executor = executor != null ? executor : getDefaultExecutor();
+		this.syncFrames = syncFrames;
+	}
+
+	@Override
+	public void removedFromEngine (Engine engine) {
+		// Running work is abandoned, its results would target entities of the engine the system left.
+		if (work != null) {
+			work.abandoned = true;
+			work = null;
+		}
+	}
+
+	@Override
+	public void update (float deltaTime) {
+		if (work != null) {
+			++work.frames;
+
+			if (work.frames >= syncFrames && work.done) {
+				join();
+			}
+		}
+
+		if (work == null && prepare(deltaTime)) {
+			EntityCommandBuffer commands = spareBuffer != null ? spareBuffer : new EntityCommandBuffer();
+			spareBuffer = null;
+			work = new Work(commands);
+			executor.execute(work);
+		}
+	}
+
+	/** @return Whether work was started and has not been joined yet. */
+	public boolean isWorking () {
+		return work != null;
+	}
+
+	/** @return Number of updates after the one starting the work at which it is joined at the earliest. */
+	public int getSyncFrames () {
+		return syncFrames;
+	}
+
+	/**
+	 * Called on the engine thread on every update while no work is running. Override this to copy the inputs of the work.
+	 * @param deltaTime The delta time between the last and current frame
+	 * @return Whether to start work now
+	 */
+	protected boolean prepare (float deltaTime) {
+		return true;
+	}
+
+	/**
+	 * Runs on the executor. Implement the system's blocking work here.
+	 * @param commands Buffer recording the changes to entities, played back after the work is joined
+	 * @throws Exception rethrown on the engine thread, wrapped in a RuntimeException, when the work is joined
+	 */
+	protected abstract void process (EntityCommandBuffer commands) throws Exception;
+
+	/** Called on the engine thread when the work is joined, right before its commands are played back. */
+	protected void completed () {
+	}
+
+	private void join () {
+		Work joined = work;
+		work = null;
+
+		if (joined.failure != null) {
+			joined.commands.clear();
+			spareBuffer = joined.commands;
+			throw new RuntimeException("Work of " + getClass().getName() + " failed.", joined.failure);
+		}
+
+		getCommandBuffer().append(joined.commands);
+		spareBuffer = joined.commands;
+		completed();
+	}
+
+	private static synchronized Executor getDefaultExecutor () {
+		if (defaultExecutor == null) {
+			defaultExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread (Runnable runnable) {
+					Thread thread = new Thread(runnable, "AsyncEntitySystem");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		return defaultExecutor;
+	}
+
+	private class Work implements Runnable {
+		final EntityCommandBuffer commands;
+		int frames;
+		volatile boolean done;
+		volatile boolean abandoned;
+		Throwable failure;
+
+		Work (EntityCommandBuffer commands) {
+			this.commands = commands;
+		}
+
+		@Override
+		public void run () {
+			try {
+				if (!abandoned) {
+					process(commands);
+				}
+			}
+			catch (Throwable t) {
+				failure = t;
+			}
+
+			done = true;
+		}
+	}
+}
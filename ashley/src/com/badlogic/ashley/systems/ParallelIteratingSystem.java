@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.systems;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityCommandBuffer;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.core.JobScheduler;
+import com.badlogic.ashley.utils.ImmutableArray;
+
+/**
+ * An EntitySystem that splits the entities of a Family into chunks of {@link #getGrainSize()} entities and calls
+ * processEntity() for each of them on a {@link ForkJoinPool}. The entity array of the family must not change while the chunks
+ * run, so structural changes (creating and destroying entities, adding and removing components) have to be recorded in the
+ * {@link EntityCommandBuffer} handed to processEntity(). Each chunk gets its own buffer, once all chunks are done the buffers are
+ * moved in chunk order to the {@link #getCommandBuffer() command buffer} of the system, which the engine plays back right after
+ * the update.
+ * <p>
+ * Not available on GWT.
+ */
+public abstract class ParallelIteratingSystem extends EntitySystem {
+	/** Number of entities processed by a single task unless stated otherwise. */
+	public static final int DEFAULT_GRAIN_SIZE = 256;
+
+	private Family family;
+	private ImmutableArray<Entity> entities;
+	private ForkJoinPool pool;
+	private int grainSize;
+	private EntityCommandBuffer[] buffers = new EntityCommandBuffer[0];
+
+	/**
+	 * Instantiates a system that will iterate over the entities described by the Family on a shared pool.
+	 * @param family The family of entities iterated over in this System
+	 */
+	public ParallelIteratingSystem (Family family) {
+		this(family, 0);
+	}
+
+	/**
+	 * Instantiates a system that will iterate over the entities described by the Family on a shared pool, with a specific
+	 * priority.
+	 * @param family The family of entities iterated over in this System
+	 * @param priority The priority to execute this system with (lower means higher priority)
+	 */
+	public ParallelIteratingSystem (Family family, int priority) {
+		this(family, priority, null, DEFAULT_GRAIN_SIZE);
+	}
+
+	/**
+	 * Instantiates a system that will iterate over the entities described by the Family, with a specific priority.
+	 * @param family The family of entities iterated over in this System
+	 * @param priority The priority to execute this system with (lower means higher priority)
+	 * @param pool The pool running the chunks, null to use {@link JobScheduler#getDefaultPool()}
+	 * @param grainSize The number of entities processed by a single task
+	 */
+	public ParallelIteratingSystem (Family family, int priority, ForkJoinPool pool, int grainSize) {
+		super(priority);
+
+		if (grainSize < 1) {
+			throw new IllegalArgumentException("grainSize must be at least 1: " + grainSize);
+		}
+
+		this.family = family;
+		this.pool = pool;
+		this.grainSize = grainSize;
+	}
+
+	@Override
+	public void addedToEngine (Engine engine) {
+		entities = engine.getEntitiesFor(family);
+	}
+
+	@Override
+	public void removedFromEngine (Engine engine) {
+		entities = null;
+	}
+
+	@Override
+	public void update (float deltaTime) {
+		startProcessing();
+
+		int size = entities.size();
+		int numChunks = (size + grainSize - 1) / grainSize;
+
+		if (buffers.length < numChunks) {
+			EntityCommandBuffer[] newBuffers = new EntityCommandBuffer[numChunks];
+			System.arraycopy(buffers, 0, newBuffers, 0, buffers.length);
+
+			for (int i = buffers.length; i < numChunks; ++i) {
+				newBuffers[i] = new EntityCommandBuffer();
+			}
+
+			buffers = newBuffers;
+		}
+
+		try {
+			if (numChunks == 1) {
+				processChunk(0, size, deltaTime);
+			}
+			else if (numChunks > 1) {
+				getPool().invoke(new ChunkAction(0, size, deltaTime));
+			}
+		}
+		catch (RuntimeException e) {
+			for (int i = 0; i < numChunks; ++i) {
+				buffers[i].clear();
+			}
+
+			throw e;
+		}
+
+		// Played back by the engine, which knows when no other system runs.
+		EntityCommandBuffer commandBuffer = getCommandBuffer();
+
+		for (int i = 0; i < numChunks; ++i) {
+			commandBuffer.append(buffers[i]);
+		}
+
+		endProcessing();
+	}
+
+	/**
+	 * @return set of entities processed by the system
+	 */
+	public ImmutableArray<Entity> getEntities () {
+		return entities;
+	}
+
+	/**
+	 * @return the Family used when the system was created
+	 */
+	public Family getFamily () {
+		return family;
+	}
+
+	/**
+	 * @return the pool running the chunks
+	 */
+	public ForkJoinPool getPool () {
+		if (pool == null) {
+			pool = JobScheduler.getDefaultPool();
+		}
+
+		return pool;
+	}
+
+	/**
+	 * @return the number of entities processed by a single task
+	 */
+	public int getGrainSize () {
+		return grainSize;
+	}
+
+	/**
+	 * This method is called on every entity on every update call of the EntitySystem, concurrently for entities of different
+	 * chunks. Override this to implement your system's specific processing. Only the components of the given entity may be
+	 * modified, structural changes must go through the buffer.
+	 * @param entity The current Entity being processed
+	 * @param deltaTime The delta time between the last and current frame
+	 * @param commands Buffer of the current chunk, played back after the update of the system
+	 */
+	protected abstract void processEntity (Entity entity, float deltaTime, EntityCommandBuffer commands);
+
+	/**
+	 * This method is called once on every update call of the EntitySystem, before entity processing begins. Override this method to
+	 * implement your specific startup conditions.
+	 */
+	public void startProcessing() {}
+
+	/**
+	 * This method is called once on every update call of the EntitySystem after entity processing is complete, before the
+	 * buffers are played back. Override this method to implement your specific end conditions.
+	 */
+	public void endProcessing() {}
+
+	private void processChunk (int start, int end, float deltaTime) {
+		EntityCommandBuffer commands = buffers[start / grainSize];
+
+		for (int i = start; i < end; ++i) {
+			processEntity(entities.get(i), deltaTime, commands);
+		}
+	}
+
+	/** Splits its range on chunk boundaries until a single chunk is left. */
+	private class ChunkAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int start;
+		private final int end;
+		private final float deltaTime;
+
+		ChunkAction (int start, int end, float deltaTime) {
+			this.start = start;
+			this.end = end;
+			this.deltaTime = deltaTime;
+		}
+
+		@Override
+		protected void compute () {
+			int numChunks = (end - start + grainSize - 1) / grainSize;
+
+			if (numChunks <= 1) {
+				processChunk(start, end, deltaTime);
+				return;
+			}
+
+			int middle = start + numChunks / 2 * grainSize;
+			invokeAll(new ChunkAction(start, middle, deltaTime), new ChunkAction(middle, end, deltaTime));
+		}
+	}
+}
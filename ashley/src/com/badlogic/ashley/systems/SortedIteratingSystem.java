@@ -16,28 +16,31 @@
 
 package com.badlogic.ashley.systems;
 
+import com.badlogic.ashley.core.BatchEntityListener;
 import com.badlogic.ashley.core.Engine;
 import com.badlogic.ashley.core.Entity;
-import com.badlogic.ashley.core.EntityListener;
 import com.badlogic.ashley.core.EntitySystem;
 import com.badlogic.ashley.core.Family;
 import com.badlogic.ashley.utils.ImmutableArray;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectSet;
 import java.util.Comparator;
 
 /**
  * A simple EntitySystem that processes each entity of a given family in the order specified by a comparator and calls
  * processEntity() for each entity every time the EntitySystem is updated. This is really just a convenience class as rendering
  * systems tend to iterate over a list of entities in a sorted manner. Adding entities will cause the entity list to be resorted.
- * Call forceSort() if you changed your sorting criteria.
+ * Call forceSort() if you changed your sorting criteria. Entities added or removed together are handled in bulk, removing
+ * entities keeps the others sorted.
  * @author Santo Pfingsten
  */
-public abstract class SortedIteratingSystem extends EntitySystem implements EntityListener {
+public abstract class SortedIteratingSystem extends EntitySystem implements BatchEntityListener {
 	private Family family;
 	private Array<Entity> sortedEntities;
 	private final ImmutableArray<Entity> entities;
 	private boolean shouldSort;
 	private Comparator<Entity> comparator;
+	private final ObjectSet<Entity> removedEntities = new ObjectSet<Entity>();
 
 	/**
 	 * Instantiates a system that will iterate over the entities described by the Family.
@@ -110,6 +113,38 @@ public abstract class SortedIteratingSystem extends EntitySystem implements Enti
 		shouldSort = true;
 	}
 
+	@Override
+	public void entitiesAdded (ImmutableArray<Entity> entities) {
+		sortedEntities.ensureCapacity(entities.size());
+
+		for (int i = 0; i < entities.size(); ++i) {
+			sortedEntities.add(entities.get(i));
+		}
+
+		shouldSort = true;
+	}
+
+	@Override
+	public void entitiesRemoved (ImmutableArray<Entity> entities) {
+		for (int i = 0; i < entities.size(); ++i) {
+			removedEntities.add(entities.get(i));
+		}
+
+		// Single pass keeping the order, the remaining entities need no sorting.
+		int size = 0;
+
+		for (int i = 0; i < sortedEntities.size; ++i) {
+			Entity entity = sortedEntities.get(i);
+
+			if (!removedEntities.contains(entity)) {
+				sortedEntities.set(size++, entity);
+			}
+		}
+
+		sortedEntities.truncate(size);
+		removedEntities.clear(16);
+	}
+
 	@Override
 	public void update (float deltaTime) {
 		sort();
@@ -0,0 +1,253 @@
+package com.badlogic.ashley.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.badlogic.ashley.utils.ImmutableArray;
+
+public class ArchetypeEngineTests {
+	private float deltaTime = 0.16f;
+
+	private static class ComponentA implements Component {
+	}
+
+	private static class ComponentB implements Component {
+	}
+
+	private static class ComponentC implements Component {
+	}
+
+	public static class PublicComponent implements Component {
+	}
+
+	private static class ComponentAdderSystem extends EntitySystem {
+		private Entity entity;
+
+		public ComponentAdderSystem (Entity entity) {
+			this.entity = entity;
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			entity.add(new ComponentB());
+		}
+	}
+
+	private static int countEntities (ImmutableArray<Archetype> archetypes) {
+		int count = 0;
+
+		for (Archetype archetype : archetypes) {
+			count += archetype.size();
+		}
+
+		return count;
+	}
+
+	@Test
+	public void entitiesGroupedByComponents () {
+		ArchetypeEngine engine = new ArchetypeEngine();
+
+		Entity entity1 = new Entity();
+		entity1.add(new ComponentA());
+		Entity entity2 = new Entity();
+		entity2.add(new ComponentA());
+		Entity entity3 = new Entity();
+		entity3.add(new ComponentA());
+		entity3.add(new ComponentB());
+
+		engine.addEntity(entity1);
+		engine.addEntity(entity2);
+		engine.addEntity(entity3);
+
+		assertEquals(2, engine.getArchetypes().size());
+		assertSame(entity1.archetypeChunk, entity2.archetypeChunk);
+		assertNotSame(entity1.archetypeChunk.getArchetype(), entity3.archetypeChunk.getArchetype());
+
+		ArchetypeChunk chunk = entity1.archetypeChunk;
+		Component[] columnA = chunk.getColumn(ComponentA.class);
+
+		assertEquals(2, chunk.size());
+		assertNull(chunk.getColumn(ComponentB.class));
+
+		for (int i = 0; i < chunk.size(); ++i) {
+			assertSame(chunk.getEntity(i).getComponent(ComponentA.class), columnA[i]);
+		}
+	}
+
+	@Test
+	public void archetypesForFamily () {
+		ArchetypeEngine engine = new ArchetypeEngine();
+		Family familyA = Family.all(ComponentA.class).get();
+		Family familyAB = Family.all(ComponentA.class, ComponentB.class).get();
+
+		ImmutableArray<Archetype> archetypesA = engine.getArchetypesFor(familyA);
+		ImmutableArray<Archetype> archetypesAB = engine.getArchetypesFor(familyAB);
+
+		assertSame(archetypesA, engine.getArchetypesFor(familyA));
+
+		Entity entity1 = new Entity();
+		entity1.add(new ComponentA());
+		Entity entity2 = new Entity();
+		entity2.add(new ComponentA());
+		entity2.add(new ComponentB());
+		Entity entity3 = new Entity();
+		entity3.add(new ComponentC());
+
+		engine.addEntity(entity1);
+		engine.addEntity(entity2);
+		engine.addEntity(entity3);
+
+		assertEquals(2, archetypesA.size());
+		assertEquals(1, archetypesAB.size());
+		assertEquals(2, countEntities(archetypesA));
+		assertEquals(1, countEntities(archetypesAB));
+
+		ImmutableArray<Archetype> archetypesC = engine.getArchetypesFor(Family.all(ComponentC.class).get());
+
+		assertEquals(1, archetypesC.size());
+		assertEquals(1, countEntities(archetypesC));
+	}
+
+	@Test
+	public void componentChangesMoveEntity () {
+		ArchetypeEngine engine = new ArchetypeEngine();
+		ImmutableArray<Archetype> archetypesB = engine.getArchetypesFor(Family.all(ComponentB.class).get());
+
+		Entity entity = new Entity();
+		entity.add(new ComponentA());
+		engine.addEntity(entity);
+
+		assertEquals(0, countEntities(archetypesB));
+
+		ComponentB componentB = new ComponentB();
+		entity.add(componentB);
+
+		assertEquals(1, countEntities(archetypesB));
+		assertSame(componentB, entity.archetypeChunk.getColumn(ComponentB.class)[entity.archetypeRow]);
+
+		ComponentB replacement = new ComponentB();
+		entity.add(replacement);
+
+		assertEquals(1, countEntities(archetypesB));
+		assertSame(replacement, entity.archetypeChunk.getColumn(ComponentB.class)[entity.archetypeRow]);
+
+		entity.remove(ComponentB.class);
+
+		assertEquals(0, countEntities(archetypesB));
+		assertNull(entity.archetypeChunk.getColumn(ComponentB.class));
+
+		engine.removeEntity(entity);
+
+		assertNull(entity.archetypeChunk);
+		assertEquals(-1, entity.archetypeRow);
+	}
+
+	@Test
+	public void chunksStayDense () {
+		int chunkCapacity = 4;
+		int numEntities = 10;
+		ArchetypeEngine engine = new ArchetypeEngine(chunkCapacity);
+		Entity[] entities = new Entity[numEntities];
+
+		for (int i = 0; i < numEntities; ++i) {
+			entities[i] = new Entity();
+			entities[i].add(new ComponentA());
+			engine.addEntity(entities[i]);
+		}
+
+		Archetype archetype = entities[0].archetypeChunk.getArchetype();
+
+		assertEquals(numEntities, archetype.size());
+		assertEquals(3, archetype.getChunks().size());
+
+		for (int i = 0; i < numEntities; i += 2) {
+			engine.removeEntity(entities[i]);
+		}
+
+		assertEquals(numEntities / 2, archetype.size());
+		assertEquals(2, archetype.getChunks().size());
+		assertEquals(chunkCapacity, archetype.getChunks().get(0).size());
+
+		for (ArchetypeChunk chunk : archetype.getChunks()) {
+			Component[] column = chunk.getColumn(ComponentA.class);
+
+			for (int row = 0; row < chunk.size(); ++row) {
+				Entity entity = chunk.getEntity(row);
+				assertSame(chunk, entity.archetypeChunk);
+				assertEquals(row, entity.archetypeRow);
+				assertSame(entity.getComponent(ComponentA.class), column[row]);
+			}
+
+			for (int row = chunk.size(); row < chunk.getCapacity(); ++row) {
+				assertNull(chunk.getEntity(row));
+				assertNull(column[row]);
+			}
+		}
+
+		engine.removeAllEntities();
+
+		assertEquals(0, archetype.size());
+		assertEquals(0, archetype.getChunks().size());
+	}
+
+	@Test
+	public void chunksFollowFamilyMembershipWhileUpdating () {
+		ArchetypeEngine engine = new ArchetypeEngine();
+		ImmutableArray<Archetype> archetypesB = engine.getArchetypesFor(Family.all(ComponentB.class).get());
+
+		Entity entity = new Entity();
+		entity.add(new ComponentA());
+		engine.addEntity(entity);
+		engine.addSystem(new ComponentAdderSystem(entity));
+
+		engine.update(deltaTime);
+
+		assertEquals(1, countEntities(archetypesB));
+		assertEquals(1, engine.getEntitiesFor(Family.all(ComponentB.class).get()).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidChunkCapacity () {
+		new ArchetypeEngine(0);
+	}
+
+	@Test
+	public void componentTypesEndingBitsWord () throws Exception {
+		// one of 64 consecutive component types has its index at the end of a word of Bits
+		ComponentClassFactory cl = new ComponentClassFactory();
+		ArchetypeEngine engine = new ArchetypeEngine();
+		Family family = Family.all(ComponentA.class).get();
+		ImmutableArray<Entity> familyEntities = engine.getEntitiesFor(family);
+		int numTypes = 64;
+
+		for (int i = 0; i < numTypes; ++i) {
+			Class<? extends Component> type = cl.createComponentType("WordEndComponent" + i);
+			Entity entity = new Entity();
+			entity.add(type.newInstance());
+			engine.addEntity(entity);
+			entity.add(new ComponentA());
+		}
+
+		assertEquals(numTypes, familyEntities.size());
+		assertEquals(numTypes, countEntities(engine.getArchetypesFor(family)));
+	}
+
+	@Test
+	public void createEntitiesFillArchetype () {
+		ArchetypeEngine engine = new ArchetypeEngine(4);
+		Family family = Family.all(PublicComponent.class).get();
+		ImmutableArray<Archetype> archetypes = engine.getArchetypesFor(family);
+
+		ImmutableArray<Entity> entities = engine.createEntities(10, PublicComponent.class);
+
+		assertEquals(1, archetypes.size());
+		assertEquals(10, countEntities(archetypes));
+		assertEquals(3, archetypes.first().getChunks().size());
+		assertEquals(10, engine.getEntitiesFor(family).size());
+
+		for (Entity entity : entities) {
+			assertSame(entity, entity.archetypeChunk.getEntity(entity.archetypeRow));
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package com.badlogic.ashley.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+
+@SuppressWarnings("unchecked")
+public class BatchEntityListenerTests {
+	private float deltaTime = 0.16f;
+
+	public static class ComponentA implements Component {
+	}
+
+	public static class ComponentB implements Component {
+	}
+
+	private static class RecordingListener implements BatchEntityListener {
+		public final Array<Integer> addedBatches = new Array<Integer>();
+		public final Array<Integer> removedBatches = new Array<Integer>();
+		public int addedCount = 0;
+		public int removedCount = 0;
+
+		@Override
+		public void entitiesAdded (ImmutableArray<Entity> entities) {
+			addedBatches.add(entities.size());
+		}
+
+		@Override
+		public void entitiesRemoved (ImmutableArray<Entity> entities) {
+			removedBatches.add(entities.size());
+		}
+
+		@Override
+		public void entityAdded (Entity entity) {
+			++addedCount;
+		}
+
+		@Override
+		public void entityRemoved (Entity entity) {
+			++removedCount;
+		}
+	}
+
+	private static class CountingListener implements EntityListener {
+		public int addedCount = 0;
+		public int removedCount = 0;
+
+		@Override
+		public void entityAdded (Entity entity) {
+			++addedCount;
+		}
+
+		@Override
+		public void entityRemoved (Entity entity) {
+			++removedCount;
+		}
+	}
+
+	private static class SwapSystem extends EntitySystem {
+		private ImmutableArray<Entity> entities;
+
+		@Override
+		public void addedToEngine (Engine engine) {
+			entities = engine.getEntities();
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			for (int i = 0; i < entities.size(); ++i) {
+				Entity entity = entities.get(i);
+
+				if (entity.remove(ComponentA.class) == null) {
+					entity.add(new ComponentA());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void componentChangesDeliveredOncePerFamily () {
+		Engine engine = new Engine();
+		Family familyA = Family.all(ComponentA.class).get();
+		Family familyB = Family.all(ComponentB.class).get();
+		RecordingListener listenerA = new RecordingListener();
+		RecordingListener listenerB = new RecordingListener();
+		CountingListener counting = new CountingListener();
+		engine.addEntityListener(familyA, listenerA);
+		engine.addEntityListener(familyB, listenerB);
+		engine.addEntityListener(familyA, counting);
+		engine.addSystem(new SwapSystem());
+
+		for (int i = 0; i < 10; ++i) {
+			Entity entity = new Entity();
+			entity.add(new ComponentB());
+
+			if (i < 4) {
+				entity.add(new ComponentA());
+			}
+
+			engine.addEntity(entity);
+		}
+
+		// Changes applied right away are notified entity by entity.
+		assertEquals(4, listenerA.addedCount);
+		assertEquals(0, listenerA.addedBatches.size);
+
+		engine.update(deltaTime);
+
+		assertEquals(1, listenerA.addedBatches.size);
+		assertEquals(6, (int)listenerA.addedBatches.get(0));
+		assertEquals(1, listenerA.removedBatches.size);
+		assertEquals(4, (int)listenerA.removedBatches.get(0));
+		assertEquals(4, listenerA.addedCount);
+		assertEquals(0, listenerA.removedCount);
+		assertEquals(0, listenerB.addedBatches.size);
+		assertEquals(0, listenerB.removedBatches.size);
+		assertEquals(10, counting.addedCount);
+		assertEquals(4, counting.removedCount);
+		assertEquals(6, engine.getEntitiesFor(familyA).size());
+	}
+
+	@Test
+	public void bulkAddAndRemove () {
+		Engine engine = new Engine();
+		Family familyA = Family.all(ComponentA.class).get();
+		Family familyB = Family.all(ComponentB.class).get();
+		RecordingListener listenerA = new RecordingListener();
+		RecordingListener listenerB = new RecordingListener();
+		engine.addEntityListener(familyA, listenerA);
+		engine.addEntityListener(familyB, listenerB);
+
+		engine.instantiate(new EntityTemplate(ComponentA.class), 20);
+		engine.instantiate(new EntityTemplate(ComponentA.class, ComponentB.class), 5);
+
+		assertEquals(2, listenerA.addedBatches.size);
+		assertEquals(20, (int)listenerA.addedBatches.get(0));
+		assertEquals(5, (int)listenerA.addedBatches.get(1));
+		assertEquals(1, listenerB.addedBatches.size);
+
+		engine.removeAllEntities(familyB);
+
+		assertEquals(1, listenerA.removedBatches.size);
+		assertEquals(5, (int)listenerA.removedBatches.get(0));
+		assertEquals(1, listenerB.removedBatches.size);
+
+		engine.removeAllEntities();
+
+		assertEquals(2, listenerA.removedBatches.size);
+		assertEquals(20, (int)listenerA.removedBatches.get(1));
+		assertEquals(1, listenerB.removedBatches.size);
+		assertEquals(0, listenerA.removedCount);
+	}
+
+	@Test
+	public void changesWhileDeliveringAreDelivered () {
+		final Engine engine = new Engine();
+		final Family familyA = Family.all(ComponentA.class).get();
+		final Family familyB = Family.all(ComponentB.class).get();
+		RecordingListener listenerB = new RecordingListener();
+		engine.addEntityListener(familyA, new RecordingListener() {
+			@Override
+			public void entitiesAdded (ImmutableArray<Entity> entities) {
+				super.entitiesAdded(entities);
+
+				for (int i = 0; i < entities.size(); ++i) {
+					entities.get(i).add(new ComponentB());
+				}
+			}
+		});
+		engine.addEntityListener(familyB, listenerB);
+		engine.addSystem(new SwapSystem());
+
+		for (int i = 0; i < 3; ++i) {
+			engine.addEntity(new Entity());
+		}
+
+		engine.update(deltaTime);
+
+		assertEquals(1, listenerB.addedBatches.size);
+		assertEquals(3, (int)listenerB.addedBatches.get(0));
+		assertEquals(3, engine.getEntitiesFor(familyB).size());
+	}
+
+	@Test
+	public void removedListenerNotDelivered () {
+		final Engine engine = new Engine();
+		Family familyA = Family.all(ComponentA.class).get();
+		final RecordingListener removed = new RecordingListener();
+		engine.addEntityListener(familyA, 0, new CountingListener() {
+			@Override
+			public void entityAdded (Entity entity) {
+				super.entityAdded(entity);
+				engine.removeEntityListener(removed);
+			}
+		});
+		engine.addEntityListener(familyA, 1, removed);
+		engine.addSystem(new SwapSystem());
+		engine.addEntity(new Entity());
+
+		engine.update(deltaTime);
+
+		assertEquals(0, removed.addedBatches.size);
+		assertEquals(1, engine.getEntitiesFor(familyA).size());
+	}
+}
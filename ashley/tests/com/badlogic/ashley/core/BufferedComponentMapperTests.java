@@ -0,0 +1,258 @@
+package com.badlogic.ashley.core;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.badlogic.ashley.utils.ImmutableArray;
+
+public class BufferedComponentMapperTests {
+	private float deltaTime = 0.16f;
+
+	public static class PositionComponent extends BufferedComponent<PositionComponent> {
+		public float x;
+		public int copies;
+
+		@Override
+		protected void set (PositionComponent other) {
+			x = other.x;
+			++copies;
+		}
+	}
+
+	private static class MovementSystem extends EntitySystem {
+		private BufferedComponentMapper<PositionComponent> pm;
+		private ImmutableArray<Entity> entities;
+
+		public MovementSystem (int priority) {
+			super(priority);
+			writes(PositionComponent.class);
+		}
+
+		@Override
+		public void addedToEngine (Engine engine) {
+			pm = BufferedComponentMapper.getFor(PositionComponent.class, engine);
+			entities = engine.getEntitiesFor(Family.all(PositionComponent.class).get());
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			for (int i = 0; i < entities.size(); ++i) {
+				pm.getCurrent(entities.get(i)).x += 1.0f;
+			}
+		}
+	}
+
+	private static class ObserverSystem extends EntitySystem {
+		private BufferedComponentMapper<PositionComponent> pm;
+		private ImmutableArray<Entity> entities;
+		public float previousX = -1.0f;
+
+		public ObserverSystem (int priority) {
+			super(priority);
+			reads();
+		}
+
+		@Override
+		public void addedToEngine (Engine engine) {
+			pm = BufferedComponentMapper.getFor(PositionComponent.class, engine);
+			entities = engine.getEntitiesFor(Family.all(PositionComponent.class).get());
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			previousX = pm.getPrevious(entities.first()).x;
+		}
+	}
+
+	private static Entity createEntity (Engine engine, float x) {
+		Entity entity = new Entity();
+		PositionComponent position = new PositionComponent();
+		position.x = x;
+		entity.add(position);
+		engine.addEntity(entity);
+		return entity;
+	}
+
+	@Test
+	public void previousStateKeptUntilUpdateEnds () {
+		Engine engine = new Engine();
+		Entity entity = createEntity(engine, 1.0f);
+		ObserverSystem observer = new ObserverSystem(1);
+		engine.addSystem(new MovementSystem(0));
+		engine.addSystem(observer);
+
+		BufferedComponentMapper<PositionComponent> pm = BufferedComponentMapper.getFor(PositionComponent.class, engine);
+
+		engine.update(deltaTime);
+
+		assertEquals(1.0f, observer.previousX, 0.0f);
+		assertEquals(2.0f, pm.getPrevious(entity).x, 0.0f);
+		assertEquals(2.0f, entity.getComponent(PositionComponent.class).x, 0.0f);
+		assertNotSame(pm.getPrevious(entity), pm.getCurrent(entity));
+
+		engine.update(deltaTime);
+
+		assertEquals(2.0f, observer.previousX, 0.0f);
+		assertEquals(3.0f, pm.getPrevious(entity).x, 0.0f);
+	}
+
+	@Test
+	public void onlyWrittenComponentsCopied () {
+		Engine engine = new Engine();
+		BufferedComponentMapper<PositionComponent> pm = BufferedComponentMapper.getFor(PositionComponent.class, engine);
+		Entity written = createEntity(engine, 1.0f);
+		Entity untouched = createEntity(engine, 1.0f);
+		int writtenCopies = pm.getPrevious(written).copies;
+		int untouchedCopies = pm.getPrevious(untouched).copies;
+
+		pm.getCurrent(written).x = 4.0f;
+		pm.getCurrent(written).x = 5.0f;
+
+		assertEquals(1.0f, pm.getPrevious(written).x, 0.0f);
+
+		engine.update(deltaTime);
+
+		assertEquals(5.0f, pm.getPrevious(written).x, 0.0f);
+		assertEquals(writtenCopies + 1, pm.getPrevious(written).copies);
+		assertEquals(untouchedCopies, pm.getPrevious(untouched).copies);
+
+		engine.update(deltaTime);
+
+		assertEquals(writtenCopies + 1, pm.getPrevious(written).copies);
+	}
+
+	@Test
+	public void mapperPerEngine () {
+		Engine engine1 = new Engine();
+		Engine engine2 = new PooledEngine();
+		Entity entity = createEntity(engine1, 1.0f);
+
+		assertSame(BufferedComponentMapper.getFor(PositionComponent.class, engine1),
+			BufferedComponentMapper.getFor(PositionComponent.class, engine1));
+		assertNotSame(BufferedComponentMapper.getFor(PositionComponent.class, engine1),
+			BufferedComponentMapper.getFor(PositionComponent.class, engine2));
+
+		// Entities added before the mapper was created get a previous state too.
+		BufferedComponentMapper<PositionComponent> pm = BufferedComponentMapper.getFor(PositionComponent.class, engine1);
+
+		assertNotSame(entity.getComponent(PositionComponent.class), pm.getPrevious(entity));
+		assertTrue(pm.has(entity));
+		assertNull(pm.getCurrent(new Entity()));
+		assertNull(pm.getPrevious(new Entity()));
+	}
+
+	@Test
+	public void componentAddedWhileUpdating () {
+		Engine engine = new Engine();
+		final BufferedComponentMapper<PositionComponent> pm = BufferedComponentMapper.getFor(PositionComponent.class, engine);
+		final Entity entity = new Entity();
+		engine.addEntity(entity);
+		final boolean[] sameWhileUpdating = {false};
+
+		engine.addSystem(new EntitySystem() {
+			@Override
+			public void update (float deltaTime) {
+				if (!pm.has(entity)) {
+					PositionComponent position = new PositionComponent();
+					entity.add(position);
+					sameWhileUpdating[0] = pm.getPrevious(entity) == position;
+				}
+			}
+		});
+
+		engine.update(deltaTime);
+
+		assertTrue(sameWhileUpdating[0]);
+		assertNotSame(entity.getComponent(PositionComponent.class), pm.getPrevious(entity));
+	}
+
+	@Test
+	public void recycledComponentHasNoPreviousState () {
+		PooledEngine engine = new PooledEngine();
+		BufferedComponentMapper<PositionComponent> pm = BufferedComponentMapper.getFor(PositionComponent.class, engine);
+		Entity entity1 = engine.createEntity();
+		PositionComponent position1 = engine.createComponent(PositionComponent.class);
+		entity1.add(position1);
+		engine.addEntity(entity1);
+
+		pm.getCurrent(entity1).x = 42.0f;
+		engine.update(deltaTime);
+		PositionComponent previous1 = pm.getPrevious(entity1);
+		// Written again, then removed before the update ends.
+		pm.getCurrent(entity1).x = 43.0f;
+		engine.removeEntity(entity1);
+
+		assertNull(position1.previous);
+		assertFalse(position1.dirty);
+
+		Entity entity2 = engine.createEntity();
+		PositionComponent position2 = engine.createComponent(PositionComponent.class);
+		position2.x = 7.0f;
+		entity2.add(position2);
+		engine.addEntity(entity2);
+
+		assertSame(position1, position2);
+		assertEquals(7.0f, pm.getPrevious(entity2).x, 0.0f);
+		// The previous state went back to the pool.
+		assertSame(previous1, pm.getPrevious(entity2));
+
+		int copies = pm.getPrevious(entity2).copies;
+		engine.update(deltaTime);
+
+		assertEquals(copies, pm.getPrevious(entity2).copies);
+
+		pm.getCurrent(entity2);
+		entity2.remove(PositionComponent.class);
+
+		assertNull(position2.previous);
+		assertFalse(position2.dirty);
+
+		engine.update(deltaTime);
+
+		assertEquals(7.0f, position2.x, 0.0f);
+	}
+
+	@Test
+	public void concurrentReaderSeesPreviousState () {
+		ScheduledEngine engine = new ScheduledEngine();
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		createEntity(engine, 1.0f);
+
+		engine.addSystem(new MovementSystem(0) {
+			@Override
+			public void update (float deltaTime) {
+				super.update(deltaTime);
+				await(barrier);
+			}
+		});
+		ObserverSystem observer = new ObserverSystem(1) {
+			@Override
+			public void update (float deltaTime) {
+				// Reads once the writer is done with the current state.
+				await(barrier);
+				super.update(deltaTime);
+			}
+		};
+		engine.addSystem(observer);
+		engine.setValidating(true);
+
+		assertEquals(1, engine.getBatchCount());
+
+		engine.update(deltaTime);
+
+		assertEquals(1.0f, observer.previousX, 0.0f);
+	}
+
+	private static void await (CyclicBarrier barrier) {
+		try {
+			barrier.await(5, TimeUnit.SECONDS);
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -5,6 +5,7 @@ import static org.junit.Assert.*;
 import org.junit.Test;
 
 import com.badlogic.ashley.core.ComponentOperationHandler.BooleanInformer;
+import com.badlogic.ashley.core.ComponentOperationHandler.ComponentListener;
 import com.badlogic.ashley.signals.Listener;
 import com.badlogic.ashley.signals.Signal;
 
@@ -19,6 +20,26 @@ public class ComponentOperationHandlerTests {
 		}
 	}
 	
+	private static class ComponentListenerSpy implements ComponentListener {
+		public int calls;
+		public int lastComponentTypeIndex;
+
+		@Override
+		public void componentChanged(Entity entity, int componentTypeIndex) {
+			++calls;
+			lastComponentTypeIndex = componentTypeIndex;
+		}
+	}
+	
+	private static class SignalCounter implements Listener<Entity> {
+		public int count;
+		
+		@Override
+		public void receive(Signal<Entity> signal, Entity object) {
+			++count;
+		}
+	}
+	
 	private static class ComponentSpy implements Listener<Entity> {
 		public boolean called;
 		
@@ -38,7 +59,7 @@ public class ComponentOperationHandlerTests {
 		entity.componentOperationHandler = handler;
 		entity.componentAdded.add(spy);
 		
-		handler.add(entity);
+		handler.add(entity, 0);
 		
 		assertTrue(spy.called);
 	}
@@ -55,7 +76,7 @@ public class ComponentOperationHandlerTests {
 		entity.componentOperationHandler = handler;
 		entity.componentAdded.add(spy);
 		
-		handler.add(entity);
+		handler.add(entity, 0);
 		
 		assertFalse(spy.called);
 		handler.processOperations();
@@ -72,7 +93,7 @@ public class ComponentOperationHandlerTests {
 		entity.componentOperationHandler = handler;
 		entity.componentRemoved.add(spy);
 		
-		handler.remove(entity);
+		handler.remove(entity, 0);
 		
 		assertTrue(spy.called);
 	}
@@ -89,10 +110,78 @@ public class ComponentOperationHandlerTests {
 		entity.componentOperationHandler = handler;
 		entity.componentRemoved.add(spy);
 		
-		handler.remove(entity);
+		handler.remove(entity, 0);
 		
 		assertFalse(spy.called);
 		handler.processOperations();
 		assertTrue(spy.called);
 	}
+	
+	@Test
+	public void delayedOperationsCoalescedPerEntity() {
+		BooleanInformerMock informer = new BooleanInformerMock();
+		ComponentListenerSpy listener = new ComponentListenerSpy();
+		ComponentOperationHandler handler = new ComponentOperationHandler(informer, listener);
+		SignalCounter added = new SignalCounter();
+		SignalCounter removed = new SignalCounter();
+		
+		informer.delayed = true;
+		
+		Entity entity1 = new Entity();
+		entity1.componentOperationHandler = handler;
+		entity1.componentAdded.add(added);
+		entity1.componentRemoved.add(removed);
+		Entity entity2 = new Entity();
+		entity2.componentOperationHandler = handler;
+		
+		handler.add(entity1, 0);
+		handler.add(entity1, 1);
+		handler.remove(entity1, 0);
+		handler.add(entity2, 2);
+		handler.remove(entity2, 2);
+		
+		handler.processOperations();
+		
+		assertEquals(2, listener.calls);
+		assertEquals(2, listener.lastComponentTypeIndex);
+		assertEquals(2, added.count);
+		assertEquals(1, removed.count);
+		assertNull(entity1.componentOperation);
+		assertFalse(handler.hasOperationsToProcess());
+		
+		handler.add(entity1, 3);
+		handler.processOperations();
+		
+		assertEquals(3, listener.calls);
+		assertEquals(3, listener.lastComponentTypeIndex);
+	}
+	
+	@Test
+	public void operationsQueuedWhileProcessing() {
+		final BooleanInformerMock informer = new BooleanInformerMock();
+		ComponentListenerSpy listener = new ComponentListenerSpy();
+		final ComponentOperationHandler handler = new ComponentOperationHandler(informer, listener);
+		
+		informer.delayed = true;
+		
+		final Entity entity = new Entity();
+		entity.componentOperationHandler = handler;
+		entity.componentAdded.add(new Listener<Entity>() {
+			boolean first = true;
+			
+			@Override
+			public void receive(Signal<Entity> signal, Entity object) {
+				if (first) {
+					first = false;
+					handler.remove(entity, 1);
+				}
+			}
+		});
+		
+		handler.add(entity, 1);
+		handler.processOperations();
+		
+		assertEquals(2, listener.calls);
+		assertNull(entity.componentOperation);
+	}
 }
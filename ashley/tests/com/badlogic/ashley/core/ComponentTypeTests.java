@@ -18,11 +18,15 @@ package com.badlogic.ashley.core;
 
 import static org.junit.Assert.*;
 
+import java.util.concurrent.CountDownLatch;
+
 import org.junit.Test;
 
 import com.badlogic.ashley.core.Component;
 import com.badlogic.ashley.core.ComponentType;
+import com.badlogic.gdx.utils.Bits;
 
+@SuppressWarnings("unchecked")
 public class ComponentTypeTests {
 
 	private static class ComponentA implements Component {
@@ -62,4 +66,58 @@ public class ComponentTypeTests {
 		assertNotEquals(componentType1.getIndex(), ComponentType.getIndexFor(ComponentB.class));
 		assertNotEquals(componentType2.getIndex(), ComponentType.getIndexFor(ComponentA.class));
 	}
+
+	@Test
+	public void concurrentComponentTypes () throws Exception {
+		final int numTypes = 100;
+		final int numThreads = 4;
+		ComponentClassFactory cl = new ComponentClassFactory();
+		final Class<? extends Component>[] types = new Class[numTypes];
+
+		for (int i = 0; i < numTypes; ++i) {
+			types[i] = cl.createComponentType("ConcurrentComponentType" + i);
+		}
+
+		final ComponentType[][] results = new ComponentType[numThreads][numTypes];
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[numThreads];
+
+		for (int t = 0; t < numThreads; ++t) {
+			final int thread = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run () {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+
+					for (int i = 0; i < numTypes; ++i) {
+						results[thread][i] = ComponentType.getFor(types[i]);
+					}
+				}
+			};
+			threads[t].start();
+		}
+
+		start.countDown();
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Bits indices = new Bits();
+
+		for (int i = 0; i < numTypes; ++i) {
+			ComponentType type = ComponentType.getFor(types[i]);
+
+			for (int t = 0; t < numThreads; ++t) {
+				assertSame(type, results[t][i]);
+			}
+
+			assertFalse(indices.get(type.getIndex()));
+			indices.set(type.getIndex());
+		}
+	}
 }
@@ -45,6 +45,10 @@ public class EngineTests {
 		public ComponentD(){}
 	}
 
+	public static class ComponentE implements Component {
+		public ComponentE(){}
+	}
+
 	private static class EntityListenerMock implements EntityListener {
 
 		public int addedCount = 0;
@@ -992,4 +996,420 @@ public class EngineTests {
 		engine.update(deltaTime);
 		assertEquals(0, engine.getEntities().size());
 	}
+
+	@Test
+	public void getEntityByHandle() {
+		Engine engine = new Engine();
+		Entity entity = new Entity();
+
+		assertNull(engine.getEntity(entity.getHandle()));
+
+		engine.addEntity(entity);
+		long handle = entity.getHandle();
+
+		assertSame(entity, engine.getEntity(handle));
+		assertNull(new Engine().getEntity(handle));
+
+		engine.removeEntity(entity);
+
+		assertNull(engine.getEntity(handle));
+	}
+
+	@Test
+	public void handleAssignedWhenDelayedAddIsProcessed() {
+		final Engine engine = new Engine();
+		final Entity entity = new Entity();
+
+		engine.addSystem(new EntitySystem() {
+			@Override
+			public void update (float deltaTime) {
+				engine.addEntity(entity);
+				assertEquals(Entity.NO_HANDLE, entity.getHandle());
+			}
+		});
+
+		engine.update(deltaTime);
+
+		assertSame(entity, engine.getEntity(entity.getHandle()));
+	}
+
+	@Test
+	public void createEntities () {
+		Engine engine = new Engine();
+		Family familyD = Family.all(ComponentD.class).get();
+		Family familyDE = Family.all(ComponentD.class, ComponentE.class).get();
+		Family familyA = Family.all(ComponentA.class).get();
+		ImmutableArray<Entity> entitiesD = engine.getEntitiesFor(familyD);
+		ImmutableArray<Entity> entitiesDE = engine.getEntitiesFor(familyDE);
+		ImmutableArray<Entity> entitiesA = engine.getEntitiesFor(familyA);
+		EntityListenerMock listener = new EntityListenerMock();
+		EntityListenerMock listenerDE = new EntityListenerMock();
+		EntityListenerMock listenerA = new EntityListenerMock();
+		engine.addEntityListener(listener);
+		engine.addEntityListener(familyDE, listenerDE);
+		engine.addEntityListener(familyA, listenerA);
+
+		Entity existing = new Entity();
+		existing.add(new ComponentD());
+		engine.addEntity(existing);
+
+		int count = 100;
+		ImmutableArray<Entity> created = engine.createEntities(count, ComponentD.class, ComponentE.class);
+
+		assertEquals(count, created.size());
+		assertEquals(count + 1, engine.getEntities().size());
+		assertEquals(count + 1, entitiesD.size());
+		assertEquals(count, entitiesDE.size());
+		assertEquals(0, entitiesA.size());
+		assertEquals(count + 1, listener.addedCount);
+		assertEquals(count, listenerDE.addedCount);
+		assertEquals(0, listenerA.addedCount);
+
+		for (Entity entity : created) {
+			assertNotNull(entity.getComponent(ComponentD.class));
+			assertNotNull(entity.getComponent(ComponentE.class));
+			assertSame(entity, engine.getEntity(entity.getHandle()));
+			assertTrue(familyDE.matches(entity));
+		}
+
+		// membership of created entities keeps following their components
+		Entity entity = created.get(0);
+		entity.remove(ComponentE.class);
+
+		assertEquals(count - 1, entitiesDE.size());
+		assertEquals(1, listenerDE.removedCount);
+
+		engine.removeAllEntities();
+
+		assertEquals(0, entitiesD.size());
+		assertEquals(count + 1, listener.removedCount);
+	}
+
+	@Test
+	public void createEntitiesWhileUpdating () {
+		final Engine engine = new Engine();
+		ImmutableArray<Entity> entitiesD = engine.getEntitiesFor(Family.all(ComponentD.class).get());
+
+		engine.addSystem(new EntitySystem() {
+			@Override
+			public void update (float deltaTime) {
+				if (getEngine().getEntities().size() == 0) {
+					getEngine().createEntities(10, ComponentD.class);
+					assertEquals(0, getEngine().getEntities().size());
+				}
+			}
+		});
+
+		engine.update(deltaTime);
+
+		assertEquals(10, entitiesD.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void createEntitiesOfInaccessibleComponent () {
+		new Engine().createEntities(1, ComponentA.class);
+	}
+
+	@Test
+	public void delayedComponentChangesCoalesced () {
+		Engine engine = new Engine();
+		final Entity entity = new Entity();
+		entity.add(new ComponentA());
+		engine.addEntity(entity);
+
+		Family familyB = Family.all(ComponentB.class).get();
+		Family familyBC = Family.all(ComponentB.class, ComponentC.class).get();
+		EntityListenerMock listenerB = new EntityListenerMock();
+		EntityListenerMock listenerBC = new EntityListenerMock();
+		engine.addEntityListener(familyB, listenerB);
+		engine.addEntityListener(familyBC, listenerBC);
+
+		engine.addSystem(new EntitySystem() {
+			@Override
+			public void update (float deltaTime) {
+				entity.add(new ComponentB());
+				entity.add(new ComponentC());
+				entity.remove(ComponentB.class);
+				entity.add(new ComponentB());
+			}
+		});
+
+		engine.update(deltaTime);
+
+		// intermediate states were never applied to the families
+		assertEquals(1, listenerB.addedCount);
+		assertEquals(0, listenerB.removedCount);
+		assertEquals(1, listenerBC.addedCount);
+		assertEquals(1, engine.getEntitiesFor(familyBC).size());
+	}
+
+	@Test
+	public void removeAllEntitiesOfFamilyInBatch () {
+		Engine engine = new Engine();
+		Family familyA = Family.all(ComponentA.class).get();
+		Family familyB = Family.all(ComponentB.class).get();
+		Family familyAB = Family.all(ComponentA.class, ComponentB.class).get();
+		ImmutableArray<Entity> entitiesA = engine.getEntitiesFor(familyA);
+		ImmutableArray<Entity> entitiesB = engine.getEntitiesFor(familyB);
+		ImmutableArray<Entity> entitiesAB = engine.getEntitiesFor(familyAB);
+		EntityListenerMock listener = new EntityListenerMock();
+		EntityListenerMock listenerB = new EntityListenerMock();
+		EntityListenerMock listenerAB = new EntityListenerMock();
+		engine.addEntityListener(listener);
+		engine.addEntityListener(familyB, listenerB);
+		engine.addEntityListener(familyAB, listenerAB);
+
+		int numEntities = 1000;
+		Entity[] entities = new Entity[numEntities];
+		long[] handles = new long[numEntities];
+
+		for (int i = 0; i < numEntities; ++i) {
+			entities[i] = new Entity();
+
+			if (i % 2 == 0) {
+				entities[i].add(new ComponentA());
+			}
+			if (i % 3 == 0) {
+				entities[i].add(new ComponentB());
+			}
+
+			engine.addEntity(entities[i]);
+			handles[i] = entities[i].getHandle();
+		}
+
+		int numA = (numEntities + 1) / 2;
+		int numB = (numEntities + 2) / 3;
+		int numAB = (numEntities + 5) / 6;
+
+		engine.removeAllEntities(familyA);
+
+		assertEquals(numEntities - numA, engine.getEntities().size());
+		assertEquals(0, entitiesA.size());
+		assertEquals(0, entitiesAB.size());
+		assertEquals(numB - numAB, entitiesB.size());
+		assertEquals(numA, listener.removedCount);
+		assertEquals(numAB, listenerB.removedCount);
+		assertEquals(numAB, listenerAB.removedCount);
+
+		for (int i = 0; i < numEntities; ++i) {
+			if (i % 2 == 0) {
+				assertNull(engine.getEntity(handles[i]));
+				assertEquals(-1, entities[i].getIndex());
+				assertTrue(entities[i].getFamilyBits().isEmpty());
+			} else {
+				assertSame(entities[i], engine.getEntity(handles[i]));
+			}
+		}
+
+		// arrays stay consistent for further changes
+		for (int i = 3; i < numEntities; i += 6) {
+			entities[i].remove(ComponentB.class);
+		}
+
+		assertEquals(0, entitiesB.size());
+
+		engine.removeAllEntities();
+
+		assertEquals(0, engine.getEntities().size());
+		assertEquals(numEntities, listener.removedCount);
+	}
+
+	@Test
+	public void removeFewEntitiesOfLargeFamily () {
+		Engine engine = new Engine();
+		Family familyA = Family.all(ComponentA.class).get();
+		Family familyB = Family.all(ComponentB.class).get();
+		ImmutableArray<Entity> entitiesA = engine.getEntitiesFor(familyA);
+
+		for (int i = 0; i < 100; ++i) {
+			Entity entity = new Entity();
+			entity.add(new ComponentA());
+
+			if (i < 3) {
+				entity.add(new ComponentB());
+			}
+
+			engine.addEntity(entity);
+		}
+
+		engine.removeAllEntities(familyB);
+
+		assertEquals(97, entitiesA.size());
+		assertEquals(97, engine.getEntities().size());
+
+		for (int i = 0; i < entitiesA.size(); ++i) {
+			assertNull(entitiesA.get(i).getComponent(ComponentB.class));
+		}
+
+		while (entitiesA.size() > 0) {
+			engine.removeEntity(entitiesA.first());
+		}
+
+		assertEquals(0, engine.getEntities().size());
+	}
+
+	@Test
+	public void batchRemovalListenerRemovingEntities () {
+		final Engine engine = new Engine();
+		final Family familyA = Family.all(ComponentA.class).get();
+
+		engine.addEntityListener(familyA, new EntityListener() {
+			@Override
+			public void entityAdded (Entity entity) {
+			}
+
+			@Override
+			public void entityRemoved (Entity entity) {
+				// queued while notifying
+				engine.removeAllEntities();
+			}
+		});
+
+		for (int i = 0; i < 10; ++i) {
+			Entity entity = new Entity();
+
+			if (i % 2 == 0) {
+				entity.add(new ComponentA());
+			}
+
+			engine.addEntity(entity);
+		}
+
+		engine.removeAllEntities(familyA);
+
+		assertEquals(5, engine.getEntities().size());
+		assertEquals(0, engine.getEntitiesFor(familyA).size());
+
+		// pending operations are processed after a system updates
+		engine.addSystem(new EntitySystem() {
+		});
+		engine.update(deltaTime);
+
+		assertEquals(0, engine.getEntities().size());
+	}
+
+	@Test
+	public void systemCommandBufferPlayedBackAfterUpdate () {
+		Engine engine = new Engine();
+		final ImmutableArray<Entity> entitiesA = engine.getEntitiesFor(Family.all(ComponentA.class).get());
+		final int[] sizeInNextSystem = {-1};
+
+		engine.addSystem(new EntitySystem(0) {
+			@Override
+			public void update (float deltaTime) {
+				int size = entitiesA.size();
+				getCommandBuffer().add(getCommandBuffer().createEntity(), new ComponentA());
+				assertEquals(size, entitiesA.size());
+			}
+		});
+		engine.addSystem(new EntitySystem(1) {
+			@Override
+			public void update (float deltaTime) {
+				sizeInNextSystem[0] = entitiesA.size();
+			}
+		});
+
+		engine.update(deltaTime);
+
+		assertEquals(1, sizeInNextSystem[0]);
+
+		engine.update(deltaTime);
+
+		assertEquals(2, sizeInNextSystem[0]);
+		assertEquals(2, entitiesA.size());
+	}
+
+	@Test
+	public void familyRegisteredWhileComponentChangePending () {
+		Engine engine = new Engine();
+		final Entity entity = new Entity();
+		entity.add(new ComponentA());
+		engine.addEntity(entity);
+
+		final Family familyAB = Family.all(ComponentA.class, ComponentB.class).get();
+		final Family familyOnlyA = Family.all(ComponentA.class).exclude(ComponentB.class).get();
+		final int[] sizes = new int[2];
+
+		engine.addSystem(new EntitySystem() {
+			@Override
+			public void update (float deltaTime) {
+				entity.add(new ComponentB());
+				// Families registered now agree with the others until the change is processed.
+				sizes[0] = getEngine().getEntitiesFor(familyAB).size();
+				sizes[1] = getEngine().getEntitiesFor(familyOnlyA).size();
+			}
+		});
+
+		engine.update(deltaTime);
+
+		assertEquals(0, sizes[0]);
+		assertEquals(1, sizes[1]);
+		assertEquals(1, engine.getEntitiesFor(familyAB).size());
+		assertEquals(0, engine.getEntitiesFor(familyOnlyA).size());
+	}
+
+	@Test
+	public void denseComponentScan () {
+		Engine engine = new Engine();
+		ComponentMapper<ComponentA> am = ComponentMapper.getFor(ComponentA.class);
+		ImmutableArray<ComponentA> components = engine.getComponents(ComponentA.class);
+		ImmutableArray<Entity> entities = engine.getEntitiesWith(ComponentA.class);
+		Entity[] added = new Entity[5];
+
+		for (int i = 0; i < added.length; ++i) {
+			added[i] = new Entity();
+			added[i].add(new ComponentA());
+			engine.addEntity(added[i]);
+		}
+
+		Entity withoutA = new Entity();
+		withoutA.add(new ComponentB());
+		engine.addEntity(withoutA);
+
+		assertSame(components, engine.getComponents(ComponentA.class));
+		assertEquals(5, components.size());
+
+		added[1].remove(ComponentA.class);
+		engine.removeEntity(added[3]);
+		ComponentA replaced = new ComponentA();
+		added[0].add(replaced);
+
+		assertEquals(3, components.size());
+		assertEquals(3, entities.size());
+
+		for (int i = 0; i < components.size(); ++i) {
+			assertSame(components.get(i), am.get(entities.get(i)));
+			assertTrue(am.has(entities.get(i)));
+		}
+
+		assertSame(replaced, am.get(added[0]));
+		assertFalse(am.has(added[1]));
+		assertFalse(am.has(withoutA));
+		assertNull(am.get(withoutA));
+		assertEquals(0, engine.getComponents(ComponentC.class).size());
+	}
+
+	@Test
+	public void componentsKeptOutsideEngine () {
+		Engine engine = new Engine();
+		ComponentMapper<ComponentA> am = ComponentMapper.getFor(ComponentA.class);
+		Entity entity = new Entity();
+		ComponentA a = new ComponentA();
+		entity.add(a);
+
+		assertSame(a, am.get(entity));
+
+		engine.addEntity(entity);
+		engine.removeEntity(entity);
+
+		assertSame(a, am.get(entity));
+		assertTrue(am.has(entity));
+		assertEquals(0, engine.getComponents(ComponentA.class).size());
+
+		Engine other = new Engine();
+		other.addEntity(entity);
+
+		assertSame(a, other.getComponents(ComponentA.class).first());
+		assertSame(entity, other.getEntitiesWith(ComponentA.class).first());
+	}
 }
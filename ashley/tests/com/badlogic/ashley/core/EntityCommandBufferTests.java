@@ -0,0 +1,278 @@
+package com.badlogic.ashley.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.badlogic.ashley.signals.Listener;
+import com.badlogic.ashley.signals.Signal;
+import com.badlogic.ashley.utils.ImmutableArray;
+
+@SuppressWarnings("unchecked")
+public class EntityCommandBufferTests {
+	private float deltaTime = 0.16f;
+
+	private static class ComponentA implements Component {
+	}
+
+	private static class ComponentB implements Component {
+	}
+
+	private static class CountingListener implements EntityListener {
+		public int addedCount = 0;
+		public int removedCount = 0;
+
+		@Override
+		public void entityAdded (Entity entity) {
+			++addedCount;
+		}
+
+		@Override
+		public void entityRemoved (Entity entity) {
+			++removedCount;
+		}
+	}
+
+	private static class CountingSignalListener implements Listener<Entity> {
+		public int count = 0;
+
+		@Override
+		public void receive (Signal<Entity> signal, Entity object) {
+			++count;
+		}
+	}
+
+	private static class PlaybackSystem extends EntitySystem {
+		private EntityCommandBuffer buffer;
+		private ImmutableArray<Entity> entities;
+		public int sizeAfterPlayback = -1;
+
+		public PlaybackSystem (EntityCommandBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public void addedToEngine (Engine engine) {
+			entities = engine.getEntitiesFor(Family.all(ComponentA.class).get());
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			getEngine().playback(buffer);
+			sizeAfterPlayback = entities.size();
+		}
+	}
+
+	@Test
+	public void createdEntitiesAddedOnPlayback () {
+		Engine engine = new Engine();
+		ImmutableArray<Entity> entitiesA = engine.getEntitiesFor(Family.all(ComponentA.class).get());
+		ImmutableArray<Entity> entitiesAB = engine.getEntitiesFor(Family.all(ComponentA.class, ComponentB.class).get());
+		CountingListener listener = new CountingListener();
+		engine.addEntityListener(listener);
+
+		EntityCommandBuffer buffer = new EntityCommandBuffer();
+		Entity entity = buffer.createEntity();
+		buffer.add(entity, new ComponentA()).add(entity, new ComponentB());
+
+		assertEquals(3, buffer.size());
+		assertEquals(0, entity.getComponents().size());
+		assertEquals(0, engine.getEntities().size());
+
+		engine.playback(buffer);
+
+		assertTrue(buffer.isEmpty());
+		assertEquals(1, engine.getEntities().size());
+		assertEquals(1, entitiesA.size());
+		assertEquals(1, entitiesAB.size());
+		assertEquals(1, listener.addedCount);
+		assertNotNull(entity.getComponent(ComponentA.class));
+		assertNotNull(entity.getComponent(ComponentB.class));
+	}
+
+	@Test
+	public void singleUpdatePerEntity () {
+		Engine engine = new Engine();
+		ImmutableArray<Entity> entitiesA = engine.getEntitiesFor(Family.all(ComponentA.class).get());
+		ImmutableArray<Entity> entitiesB = engine.getEntitiesFor(Family.all(ComponentB.class).get());
+		CountingListener listenerA = new CountingListener();
+		engine.addEntityListener(Family.all(ComponentA.class).get(), listenerA);
+
+		Entity entity = new Entity();
+		entity.add(new ComponentA());
+		engine.addEntity(entity);
+
+		CountingSignalListener addedListener = new CountingSignalListener();
+		CountingSignalListener removedListener = new CountingSignalListener();
+		entity.componentAdded.add(addedListener);
+		entity.componentRemoved.add(removedListener);
+
+		EntityCommandBuffer buffer = new EntityCommandBuffer();
+		buffer.remove(entity, ComponentA.class);
+		buffer.add(entity, new ComponentA());
+		buffer.add(entity, new ComponentB());
+		engine.playback(buffer);
+
+		assertEquals(1, entitiesA.size());
+		assertEquals(1, entitiesB.size());
+		// the entity never left the family as far as listeners are concerned
+		assertEquals(1, listenerA.addedCount);
+		assertEquals(0, listenerA.removedCount);
+		assertEquals(1, addedListener.count);
+		assertEquals(1, removedListener.count);
+	}
+
+	@Test
+	public void destroyEntities () {
+		Engine engine = new Engine();
+		CountingListener listener = new CountingListener();
+		engine.addEntityListener(listener);
+
+		Entity existing = new Entity();
+		engine.addEntity(existing);
+
+		EntityCommandBuffer buffer = new EntityCommandBuffer();
+		Entity created = buffer.createEntity();
+		buffer.add(created, new ComponentA());
+		buffer.destroy(created);
+		buffer.add(existing, new ComponentA());
+		buffer.destroy(existing);
+		engine.playback(buffer);
+
+		assertEquals(0, engine.getEntities().size());
+		assertEquals(1, listener.addedCount);
+		assertEquals(1, listener.removedCount);
+		assertEquals(-1, created.getIndex());
+	}
+
+	@Test
+	public void staleCommandsDropped () {
+		PooledEngine engine = new PooledEngine();
+		Entity removed = engine.createEntity();
+		engine.addEntity(removed);
+		Entity kept = engine.createEntity();
+		engine.addEntity(kept);
+
+		EntityCommandBuffer buffer = new EntityCommandBuffer();
+		buffer.add(removed, new ComponentA());
+		buffer.destroy(removed);
+		buffer.add(kept, new ComponentA());
+		engine.removeEntity(removed);
+
+		// The pool hands the removed entity out again, with a new handle.
+		Entity recycled = engine.createEntity();
+		engine.addEntity(recycled);
+
+		assertSame(removed, recycled);
+
+		engine.playback(buffer);
+
+		assertNull(recycled.getComponent(ComponentA.class));
+		assertSame(recycled, engine.getEntity(recycled.getHandle()));
+		assertNotNull(kept.getComponent(ComponentA.class));
+		assertEquals(2, engine.getEntities().size());
+	}
+
+	@Test
+	public void bufferGrowsAndClears () {
+		Engine engine = new Engine();
+		EntityCommandBuffer buffer = new EntityCommandBuffer(1);
+
+		for (int i = 0; i < 100; ++i) {
+			buffer.add(buffer.createEntity(), new ComponentA());
+		}
+
+		assertEquals(200, buffer.size());
+
+		buffer.clear();
+		engine.playback(buffer);
+
+		assertEquals(0, engine.getEntities().size());
+
+		for (int i = 0; i < 100; ++i) {
+			buffer.add(buffer.createEntity(), new ComponentA());
+		}
+
+		engine.playback(buffer);
+
+		assertEquals(100, engine.getEntitiesFor(Family.all(ComponentA.class).get()).size());
+	}
+
+	@Test
+	public void appendBuffer () {
+		Engine engine = new Engine();
+		ImmutableArray<Entity> entitiesB = engine.getEntitiesFor(Family.all(ComponentB.class).get());
+		EntityCommandBuffer buffer = new EntityCommandBuffer(1);
+		EntityCommandBuffer other = new EntityCommandBuffer();
+
+		Entity entity = buffer.createEntity();
+		buffer.add(entity, new ComponentA());
+
+		for (int i = 0; i < 10; ++i) {
+			other.add(other.createEntity(), new ComponentB());
+		}
+
+		other.remove(entity, ComponentA.class);
+		other.add(entity, new ComponentB());
+
+		assertSame(buffer, buffer.append(other).append(buffer));
+		assertEquals(24, buffer.size());
+		assertTrue(other.isEmpty());
+
+		engine.playback(buffer);
+
+		assertEquals(11, engine.getEntities().size());
+		assertEquals(11, entitiesB.size());
+		assertNull(entity.getComponent(ComponentA.class));
+	}
+
+	@Test
+	public void playbackWhileUpdating () {
+		Engine engine = new Engine();
+		EntityCommandBuffer buffer = new EntityCommandBuffer();
+		PlaybackSystem system = new PlaybackSystem(buffer);
+		engine.addSystem(system);
+
+		buffer.add(buffer.createEntity(), new ComponentA());
+		engine.update(deltaTime);
+
+		assertEquals(1, system.sizeAfterPlayback);
+	}
+
+	@Test
+	public void buffersFilledByWorkers () throws Exception {
+		final int numWorkers = 4;
+		final int numEntities = 1000;
+		final Engine engine = new Engine();
+		ImmutableArray<Entity> entitiesB = engine.getEntitiesFor(Family.all(ComponentB.class).get());
+
+		final EntityCommandBuffer[] buffers = new EntityCommandBuffer[numWorkers];
+		Thread[] workers = new Thread[numWorkers];
+
+		for (int i = 0; i < numWorkers; ++i) {
+			final EntityCommandBuffer buffer = buffers[i] = new EntityCommandBuffer();
+			workers[i] = new Thread() {
+				@Override
+				public void run () {
+					for (int j = 0; j < numEntities; ++j) {
+						Entity entity = buffer.createEntity();
+						buffer.add(entity, new ComponentA());
+
+						if (j % 2 == 0) {
+							buffer.add(entity, new ComponentB());
+						}
+					}
+				}
+			};
+			workers[i].start();
+		}
+
+		for (int i = 0; i < numWorkers; ++i) {
+			workers[i].join();
+			engine.playback(buffers[i]);
+		}
+
+		assertEquals(numWorkers * numEntities, engine.getEntities().size());
+		assertEquals(numWorkers * numEntities / 2, entitiesB.size());
+	}
+}
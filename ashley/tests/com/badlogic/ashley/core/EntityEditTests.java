@@ -0,0 +1,155 @@
+package com.badlogic.ashley.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.badlogic.ashley.signals.Listener;
+import com.badlogic.ashley.signals.Signal;
+import com.badlogic.ashley.utils.ImmutableArray;
+
+@SuppressWarnings("unchecked")
+public class EntityEditTests {
+	private float deltaTime = 0.16f;
+
+	private static class ComponentA implements Component {
+	}
+
+	private static class ComponentB implements Component {
+	}
+
+	private static class ComponentC implements Component {
+	}
+
+	private static class CountingListener implements EntityListener {
+		public int addedCount = 0;
+		public int removedCount = 0;
+
+		@Override
+		public void entityAdded (Entity entity) {
+			++addedCount;
+		}
+
+		@Override
+		public void entityRemoved (Entity entity) {
+			++removedCount;
+		}
+	}
+
+	private static class SignalCounter implements Listener<Entity> {
+		public int count = 0;
+
+		@Override
+		public void receive (Signal<Entity> signal, Entity object) {
+			++count;
+		}
+	}
+
+	@Test
+	public void singleNotificationOnCommit () {
+		Engine engine = new Engine();
+		Family familyAB = Family.all(ComponentA.class, ComponentB.class).get();
+		Family familyOnlyA = Family.all(ComponentA.class).exclude(ComponentB.class).get();
+		Family familyC = Family.all(ComponentC.class).get();
+		CountingListener listenerAB = new CountingListener();
+		CountingListener listenerOnlyA = new CountingListener();
+		CountingListener listenerC = new CountingListener();
+		engine.addEntityListener(familyAB, listenerAB);
+		engine.addEntityListener(familyOnlyA, listenerOnlyA);
+		engine.addEntityListener(familyC, listenerC);
+
+		Entity entity = new Entity();
+		entity.add(new ComponentC());
+		engine.addEntity(entity);
+
+		SignalCounter added = new SignalCounter();
+		SignalCounter removed = new SignalCounter();
+		entity.componentAdded.add(added);
+		entity.componentRemoved.add(removed);
+
+		EntityEdit edit = entity.edit().add(new ComponentA()).add(new ComponentB()).remove(ComponentC.class);
+
+		// changes are applied right away, notifications wait for the commit
+		assertNotNull(entity.getComponent(ComponentA.class));
+		assertNull(entity.getComponent(ComponentC.class));
+		assertTrue(edit.hasChanges());
+		assertEquals(0, added.count);
+		assertEquals(1, engine.getEntitiesFor(familyC).size());
+
+		assertSame(entity, edit.commit());
+
+		assertFalse(edit.hasChanges());
+		assertEquals(1, listenerAB.addedCount);
+		assertEquals(0, listenerOnlyA.addedCount);
+		assertEquals(1, listenerC.removedCount);
+		assertEquals(1, engine.getEntitiesFor(familyAB).size());
+		assertEquals(0, engine.getEntitiesFor(familyC).size());
+		assertEquals(2, added.count);
+		assertEquals(1, removed.count);
+	}
+
+	@Test
+	public void editWithoutEngine () {
+		Entity entity = new Entity();
+		SignalCounter added = new SignalCounter();
+		entity.componentAdded.add(added);
+
+		entity.edit().add(new ComponentA()).add(new ComponentB());
+
+		assertEquals(0, added.count);
+		assertEquals(2, entity.getComponents().size());
+
+		entity.edit().commit();
+
+		assertEquals(2, added.count);
+	}
+
+	@Test
+	public void reusedEdit () {
+		Engine engine = new Engine();
+		ImmutableArray<Entity> entitiesA = engine.getEntitiesFor(Family.all(ComponentA.class).get());
+		Entity entity = new Entity();
+		engine.addEntity(entity);
+
+		EntityEdit edit = entity.edit();
+
+		assertSame(edit, entity.edit());
+		assertSame(entity, edit.commit());
+
+		edit.add(new ComponentA()).commit();
+
+		assertEquals(1, entitiesA.size());
+
+		edit.remove(ComponentB.class);
+
+		assertFalse(edit.hasChanges());
+
+		edit.remove(ComponentA.class).commit();
+
+		assertEquals(0, entitiesA.size());
+	}
+
+	@Test
+	public void commitWhileUpdating () {
+		Engine engine = new Engine();
+		final Family familyAB = Family.all(ComponentA.class, ComponentB.class).get();
+		CountingListener listenerAB = new CountingListener();
+		engine.addEntityListener(familyAB, listenerAB);
+
+		final Entity entity = new Entity();
+		engine.addEntity(entity);
+
+		engine.addSystem(new EntitySystem() {
+			@Override
+			public void update (float deltaTime) {
+				entity.edit().add(new ComponentA()).add(new ComponentB()).commit();
+				assertEquals(0, getEngine().getEntitiesFor(familyAB).size());
+			}
+		});
+
+		engine.update(deltaTime);
+
+		assertEquals(1, listenerAB.addedCount);
+		assertEquals(1, engine.getEntitiesFor(familyAB).size());
+	}
+}
@@ -166,4 +166,122 @@ public class EntityManagerTests {
 		manager.processPendingOperations();
 		assertEquals(1, manager.getEntities().size());
 	}
+
+	@Test
+	public void entityHandles() {
+		EntityListenerMock listener = new EntityListenerMock();
+		EntityManager manager = new EntityManager(listener);
+
+		Entity entityA = new Entity();
+		Entity entityB = new Entity();
+
+		assertEquals(-1, entityA.getIndex());
+		assertEquals(Entity.NO_HANDLE, entityA.getHandle());
+		assertNull(manager.getEntity(Entity.NO_HANDLE));
+
+		manager.addEntity(entityA);
+		manager.addEntity(entityB);
+
+		assertEquals(0, entityA.getIndex());
+		assertEquals(1, entityB.getIndex());
+		assertNotEquals(Entity.NO_HANDLE, entityA.getHandle());
+		assertEquals(0, Entity.getIndex(entityA.getHandle()));
+		assertSame(entityA, manager.getEntity(entityA.getHandle()));
+		assertSame(entityB, manager.getEntity(entityB.getHandle()));
+
+		long handleA = entityA.getHandle();
+		manager.removeEntity(entityA);
+
+		assertEquals(-1, entityA.getIndex());
+		assertEquals(Entity.NO_HANDLE, entityA.getHandle());
+		assertNull(manager.getEntity(handleA));
+
+		// Indices are reused, stale handles stay invalid
+		Entity entityC = new Entity();
+		manager.addEntity(entityC);
+
+		assertEquals(0, entityC.getIndex());
+		assertNotEquals(handleA, entityC.getHandle());
+		assertEquals(Entity.getGeneration(handleA) + 1, Entity.getGeneration(entityC.getHandle()));
+		assertNull(manager.getEntity(handleA));
+		assertSame(entityC, manager.getEntity(entityC.getHandle()));
+
+		// Same entity added back gets a new handle as well
+		manager.removeEntity(entityB);
+		manager.addEntity(entityA);
+		assertNull(manager.getEntity(handleA));
+		assertSame(entityA, manager.getEntity(entityA.getHandle()));
+	}
+
+	@Test
+	public void handleValidDuringRemovalListener() {
+		final Array<Entity> resolved = new Array<Entity>();
+		final EntityManager[] managerRef = new EntityManager[1];
+
+		EntityManager manager = new EntityManager(new EntityListener() {
+			@Override
+			public void entityAdded (Entity entity) {
+			}
+
+			@Override
+			public void entityRemoved (Entity entity) {
+				resolved.add(managerRef[0].getEntity(entity.getHandle()));
+			}
+		});
+		managerRef[0] = manager;
+
+		Entity entity = new Entity();
+		manager.addEntity(entity);
+		manager.removeEntity(entity);
+
+		assertEquals(1, resolved.size);
+		assertSame(entity, resolved.first());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void addEntityToTwoManagers() {
+		EntityManager manager1 = new EntityManager(new EntityListenerMock());
+		EntityManager manager2 = new EntityManager(new EntityListenerMock());
+
+		Entity entity = new Entity();
+		manager1.addEntity(entity);
+		manager2.addEntity(entity);
+	}
+
+	@Test
+	public void removeEntitiesKeepsArrayConsistent() {
+		EntityListenerMock listener = new EntityListenerMock();
+		EntityManager manager = new EntityManager(listener);
+		ImmutableArray<Entity> entities = manager.getEntities();
+		Array<Entity> expected = new Array<Entity>();
+
+		for (int i = 0; i < 20; ++i) {
+			Entity entity = new Entity();
+			expected.add(entity);
+			manager.addEntity(entity);
+		}
+
+		// first, last and somewhere in the middle
+		int[] removals = {0, 18, 7, 7, 3};
+
+		for (int removal : removals) {
+			Entity entity = expected.removeIndex(removal);
+			manager.removeEntity(entity);
+
+			assertFalse(entities.contains(entity, true));
+			assertEquals(expected.size, entities.size());
+
+			for (Entity remaining : expected) {
+				assertTrue(entities.contains(remaining, true));
+			}
+		}
+
+		// removed entities can be added back
+		Entity entity = new Entity();
+		manager.addEntity(entity);
+		assertSame(entity, entities.get(entities.size() - 1));
+
+		manager.removeAllEntities();
+		assertEquals(0, entities.size());
+	}
 }
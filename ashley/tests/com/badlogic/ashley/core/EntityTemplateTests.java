@@ -0,0 +1,289 @@
+package com.badlogic.ashley.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.badlogic.ashley.core.EntityTemplate.ComponentInitializer;
+import com.badlogic.ashley.signals.Listener;
+import com.badlogic.ashley.signals.Signal;
+import com.badlogic.ashley.utils.ImmutableArray;
+
+@SuppressWarnings("unchecked")
+public class EntityTemplateTests {
+	private float deltaTime = 0.16f;
+
+	public static class PositionComponent implements Component {
+		public float x;
+		public float y;
+	}
+
+	public static class VelocityComponent implements Component {
+		public float x;
+		public float y;
+	}
+
+	public static class TagComponent implements Component {
+	}
+
+	public static class NamedComponent implements Component {
+		public final String name;
+
+		public NamedComponent (String name) {
+			this.name = name;
+		}
+	}
+
+	private static class NamedFactory implements EntityTemplate.ComponentFactory<NamedComponent> {
+		public int calls = 0;
+
+		@Override
+		public NamedComponent create () {
+			++calls;
+			return new NamedComponent("named");
+		}
+	}
+
+	private static class PositionInitializer implements ComponentInitializer<PositionComponent> {
+		public int calls = 0;
+
+		@Override
+		public void initialize (PositionComponent component) {
+			++calls;
+			component.x = 5.0f;
+			component.y = 10.0f;
+		}
+	}
+
+	private static class CountingListener implements EntityListener {
+		public int addedCount = 0;
+
+		@Override
+		public void entityAdded (Entity entity) {
+			++addedCount;
+		}
+
+		@Override
+		public void entityRemoved (Entity entity) {
+		}
+	}
+
+	@Test
+	public void instantiateSingleEntity () {
+		Engine engine = new Engine();
+		ImmutableArray<Entity> moving = engine.getEntitiesFor(Family.all(PositionComponent.class, VelocityComponent.class).get());
+		ImmutableArray<Entity> tagged = engine.getEntitiesFor(Family.all(TagComponent.class).get());
+
+		PositionInitializer initializer = new PositionInitializer();
+		EntityTemplate template = new EntityTemplate().add(PositionComponent.class, initializer).add(VelocityComponent.class);
+
+		Entity entity = engine.instantiate(template);
+		PositionComponent position = entity.getComponent(PositionComponent.class);
+
+		assertEquals(1, initializer.calls);
+		assertEquals(5.0f, position.x, 0.0f);
+		assertEquals(10.0f, position.y, 0.0f);
+		assertNotNull(entity.getComponent(VelocityComponent.class));
+		assertEquals(2, entity.getComponents().size());
+		assertEquals(1, moving.size());
+		assertEquals(0, tagged.size());
+		assertSame(entity, engine.getEntity(entity.getHandle()));
+	}
+
+	@Test
+	public void instantiateMany () {
+		Engine engine = new Engine();
+		ImmutableArray<Entity> positioned = engine.getEntitiesFor(Family.all(PositionComponent.class).get());
+		CountingListener listener = new CountingListener();
+		engine.addEntityListener(Family.all(PositionComponent.class).get(), listener);
+
+		PositionInitializer initializer = new PositionInitializer();
+		EntityTemplate template = new EntityTemplate().add(PositionComponent.class, initializer);
+
+		ImmutableArray<Entity> entities = engine.instantiate(template, 50);
+
+		assertEquals(50, entities.size());
+		assertEquals(50, positioned.size());
+		assertEquals(50, initializer.calls);
+		assertEquals(50, listener.addedCount);
+
+		for (int i = 0; i < entities.size(); ++i) {
+			PositionComponent position = entities.get(i).getComponent(PositionComponent.class);
+
+			for (int j = 0; j < i; ++j) {
+				assertNotSame(position, entities.get(j).getComponent(PositionComponent.class));
+			}
+		}
+	}
+
+	@Test
+	public void noComponentSignals () {
+		Engine engine = new Engine();
+		final int[] signals = {0};
+		engine.addEntityListener(new EntityListener() {
+			@Override
+			public void entityAdded (Entity entity) {
+				entity.componentAdded.add(new Listener<Entity>() {
+					@Override
+					public void receive (Signal<Entity> signal, Entity object) {
+						++signals[0];
+					}
+				});
+			}
+
+			@Override
+			public void entityRemoved (Entity entity) {
+			}
+		});
+
+		Entity entity = engine.instantiate(new EntityTemplate(PositionComponent.class, TagComponent.class));
+
+		assertEquals(0, signals[0]);
+
+		entity.add(new VelocityComponent());
+
+		assertEquals(1, signals[0]);
+	}
+
+	@Test
+	public void familiesRegisteredAfterFirstUse () {
+		Engine engine = new Engine();
+		EntityTemplate template = new EntityTemplate(PositionComponent.class, TagComponent.class);
+
+		engine.instantiate(template, 3);
+
+		ImmutableArray<Entity> tagged = engine.getEntitiesFor(Family.all(TagComponent.class).get());
+		ImmutableArray<Entity> notMoving = engine.getEntitiesFor(Family.all(PositionComponent.class)
+			.exclude(VelocityComponent.class).get());
+
+		assertEquals(3, tagged.size());
+
+		engine.instantiate(template, 2);
+		engine.instantiate(template);
+
+		assertEquals(6, tagged.size());
+		assertEquals(6, notMoving.size());
+	}
+
+	@Test
+	public void templateChangesAfterUse () {
+		Engine engine = new Engine();
+		ImmutableArray<Entity> moving = engine.getEntitiesFor(Family.all(VelocityComponent.class).get());
+		EntityTemplate template = new EntityTemplate(PositionComponent.class);
+
+		engine.instantiate(template);
+		template.add(VelocityComponent.class);
+		engine.instantiate(template);
+
+		assertEquals(1, moving.size());
+		assertEquals(2, template.getComponentTypes().size());
+		assertTrue(template.matches(Family.all(VelocityComponent.class).get()));
+	}
+
+	@Test
+	public void sameTemplateInSeveralEngines () {
+		Engine engine1 = new Engine();
+		Engine engine2 = new PooledEngine();
+		ImmutableArray<Entity> tagged1 = engine1.getEntitiesFor(Family.all(TagComponent.class).get());
+		ImmutableArray<Entity> tagged2 = engine2.getEntitiesFor(Family.all(TagComponent.class).get());
+		EntityTemplate template = new EntityTemplate(TagComponent.class);
+
+		engine1.instantiate(template, 2);
+		engine2.instantiate(template, 3);
+		engine1.instantiate(template);
+
+		assertEquals(3, tagged1.size());
+		assertEquals(3, tagged2.size());
+	}
+
+	@Test
+	public void instantiateWhileUpdating () {
+		Engine engine = new Engine();
+		final EntityTemplate template = new EntityTemplate(TagComponent.class);
+		ImmutableArray<Entity> tagged = engine.getEntitiesFor(Family.all(TagComponent.class).get());
+
+		engine.addSystem(new EntitySystem() {
+			@Override
+			public void update (float deltaTime) {
+				if (getEngine().getEntities().size() == 0) {
+					getEngine().instantiate(template, 5);
+					getEngine().instantiate(template);
+				}
+			}
+		});
+
+		engine.update(deltaTime);
+
+		assertEquals(6, tagged.size());
+	}
+
+	@Test
+	public void factoryCreatesComponents () {
+		Engine engine = new Engine();
+		NamedFactory factory = new NamedFactory();
+		PositionInitializer initializer = new PositionInitializer();
+		// NamedComponent has no no-arg constructor, it cannot be created by reflection.
+		EntityTemplate template = new EntityTemplate().add(NamedComponent.class, factory, null).add(PositionComponent.class, null,
+			initializer);
+
+		ImmutableArray<Entity> entities = engine.instantiate(template, 3);
+
+		assertEquals(3, factory.calls);
+		assertEquals(3, initializer.calls);
+		assertEquals("named", entities.get(2).getComponent(NamedComponent.class).name);
+		assertEquals(3, engine.getEntitiesFor(Family.all(NamedComponent.class, PositionComponent.class).get()).size());
+	}
+
+	@Test
+	public void pooledEngineUsesFactoryOnlyWhenPoolEmpty () {
+		PooledEngine engine = new PooledEngine();
+		final int[] calls = {0};
+		// Pooled components still need a no-arg constructor, the pool creates them when the factory is not used.
+		EntityTemplate template = new EntityTemplate().add(VelocityComponent.class,
+			new EntityTemplate.ComponentFactory<VelocityComponent>() {
+				@Override
+				public VelocityComponent create () {
+					++calls[0];
+					return new VelocityComponent();
+				}
+			}, null);
+
+		Entity entity = engine.instantiate(template);
+		VelocityComponent component = entity.getComponent(VelocityComponent.class);
+
+		assertEquals(1, calls[0]);
+
+		engine.removeEntity(entity);
+		entity = engine.instantiate(template);
+
+		assertEquals(1, calls[0]);
+		assertSame(component, entity.getComponent(VelocityComponent.class));
+	}
+
+	@Test
+	public void templateSharedByEnginesOnSeveralThreads () throws Exception {
+		final EntityTemplate template = new EntityTemplate(PositionComponent.class, TagComponent.class);
+		final Family family = Family.all(TagComponent.class).exclude(VelocityComponent.class).get();
+		final Engine[] engines = new Engine[4];
+		Thread[] threads = new Thread[engines.length];
+
+		for (int i = 0; i < engines.length; ++i) {
+			final Engine engine = engines[i] = new Engine();
+			engine.getEntitiesFor(family);
+			threads[i] = new Thread() {
+				@Override
+				public void run () {
+					for (int j = 0; j < 1000; ++j) {
+						engine.instantiate(template);
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		for (int i = 0; i < engines.length; ++i) {
+			threads[i].join();
+			assertEquals(1000, engines[i].getEntitiesFor(family).size());
+		}
+	}
+}
@@ -131,6 +131,38 @@ public class EntityTests {
 		}
 	}	
 
+	@Test
+	public void sparseComponentTypes () throws Exception {
+		// entities only store slots up to the highest component type they contain
+		ComponentClassFactory cl = new ComponentClassFactory();
+		Class<? extends Component> lowType = cl.createComponentType("SparseLowComponent");
+
+		for(int i=0 ; i<70 ; i++){
+			cl.createComponentType("SparseComponent" + i);
+		}
+
+		Class<? extends Component> highType = cl.createComponentType("SparseHighComponent");
+		ComponentMapper<? extends Component> lowMapper = ComponentMapper.getFor(lowType);
+
+		Entity entity = new Entity();
+		assertNull(entity.getComponent(highType));
+		assertFalse(lowMapper.has(entity));
+
+		Component high = highType.newInstance();
+		entity.add(high);
+		assertSame(high, entity.getComponent(highType));
+		assertNull(entity.getComponent(lowType));
+		assertNull(lowMapper.get(entity));
+		assertNull(entity.remove(lowType));
+
+		Component low = lowType.newInstance();
+		entity.add(low);
+		assertSame(low, lowMapper.get(entity));
+		assertSame(high, entity.remove(highType));
+		assertNull(entity.getComponent(highType));
+		assertEquals(1, entity.getComponents().size());
+	}
+
 	@Test
 	public void addAndRemoveAllComponents () {
 		Entity entity = new Entity();
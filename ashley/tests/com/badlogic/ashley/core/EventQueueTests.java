@@ -0,0 +1,219 @@
+package com.badlogic.ashley.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.badlogic.ashley.core.EventQueue.Reader;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.Pool.Poolable;
+
+public class EventQueueTests {
+	private float deltaTime = 0.16f;
+
+	public static class DamageEvent implements Poolable {
+		public int amount;
+		public int resets;
+
+		@Override
+		public void reset () {
+			amount = 0;
+			++resets;
+		}
+	}
+
+	private static class PostingSystem extends EntitySystem {
+		public int toPost;
+		private EventQueue<DamageEvent> queue;
+
+		public PostingSystem (int priority) {
+			super(priority);
+		}
+
+		@Override
+		public void addedToEngine (Engine engine) {
+			queue = EventQueue.getFor(DamageEvent.class, engine);
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			for (int i = 0; i < toPost; ++i) {
+				queue.post().amount = i + 1;
+			}
+
+			toPost = 0;
+		}
+	}
+
+	private static class ReadingSystem extends EntitySystem {
+		public final Array<DamageEvent> read = new Array<DamageEvent>();
+		public final IntArray amounts = new IntArray();
+		public int total;
+		private Reader<DamageEvent> reader;
+
+		public ReadingSystem (int priority) {
+			super(priority);
+		}
+
+		@Override
+		public void addedToEngine (Engine engine) {
+			reader = EventQueue.getFor(DamageEvent.class, engine).createReader();
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			read.clear();
+			amounts.clear();
+			DamageEvent event;
+
+			while ((event = reader.next()) != null) {
+				read.add(event);
+				amounts.add(event.amount);
+				total += event.amount;
+			}
+		}
+	}
+
+	@Test
+	public void eventsReadDuringNextUpdate () {
+		Engine engine = new Engine();
+		// Systems of the same class replace each other.
+		ReadingSystem before = new ReadingSystem(0) {};
+		PostingSystem posting = new PostingSystem(1);
+		ReadingSystem after = new ReadingSystem(2);
+		engine.addSystem(before);
+		engine.addSystem(posting);
+		engine.addSystem(after);
+
+		assertSame(EventQueue.getFor(DamageEvent.class, engine), EventQueue.getFor(DamageEvent.class, engine));
+
+		posting.toPost = 3;
+		engine.update(deltaTime);
+
+		assertEquals(0, before.read.size);
+		assertEquals(0, after.read.size);
+
+		engine.update(deltaTime);
+
+		assertEquals(3, before.read.size);
+		assertEquals(3, after.read.size);
+		assertEquals(6, before.total);
+		assertEquals(6, after.total);
+
+		engine.update(deltaTime);
+
+		assertEquals(0, before.read.size);
+		assertEquals(0, after.read.size);
+	}
+
+	@Test
+	public void eventsRecycled () {
+		Engine engine = new Engine();
+		PostingSystem posting = new PostingSystem(0);
+		ReadingSystem reading = new ReadingSystem(1);
+		engine.addSystem(posting);
+		engine.addSystem(reading);
+
+		posting.toPost = 2;
+		engine.update(deltaTime);
+		engine.update(deltaTime);
+
+		DamageEvent first = reading.read.get(0);
+		DamageEvent second = reading.read.get(1);
+		engine.update(deltaTime);
+
+		assertEquals(0, first.amount);
+		assertEquals(1, first.resets);
+
+		posting.toPost = 2;
+		engine.update(deltaTime);
+		engine.update(deltaTime);
+
+		assertEquals(2, reading.read.size);
+		assertTrue(reading.read.contains(first, true));
+		assertTrue(reading.read.contains(second, true));
+	}
+
+	@Test
+	public void queueGrows () {
+		Engine engine = new Engine();
+		PostingSystem posting = new PostingSystem(0);
+		ReadingSystem reading = new ReadingSystem(1);
+		engine.addSystem(posting);
+		engine.addSystem(reading);
+
+		for (int i = 0; i < 5; ++i) {
+			posting.toPost = 100;
+			engine.update(deltaTime);
+
+			if (i > 0) {
+				assertEquals(100, reading.read.size);
+				// Events are recycled once the update ends, only their values read during it are left.
+				assertEquals(1, reading.amounts.first());
+				assertEquals(100, reading.amounts.peek());
+			}
+		}
+	}
+
+	@Test
+	public void readerMissesRecycledEvents () {
+		Engine engine = new Engine();
+		PostingSystem posting = new PostingSystem(0);
+		ReadingSystem reading = new ReadingSystem(1);
+		engine.addSystem(posting);
+		engine.addSystem(reading);
+		reading.setProcessing(false);
+
+		posting.toPost = 2;
+		engine.update(deltaTime);
+		posting.toPost = 3;
+		engine.update(deltaTime);
+
+		reading.setProcessing(true);
+		posting.toPost = 1;
+		engine.update(deltaTime);
+
+		// Only the events of the previous update are left.
+		assertEquals(3, reading.read.size);
+
+		engine.update(deltaTime);
+
+		assertEquals(1, reading.read.size);
+	}
+
+	@Test
+	public void postedFromSeveralThreads () throws Exception {
+		Engine engine = new Engine();
+		final EventQueue<DamageEvent> queue = EventQueue.getFor(DamageEvent.class, engine);
+		Reader<DamageEvent> reader = queue.createReader();
+		Thread[] threads = new Thread[4];
+
+		for (int i = 0; i < threads.length; ++i) {
+			threads[i] = new Thread() {
+				@Override
+				public void run () {
+					for (int j = 0; j < 1000; ++j) {
+						queue.post().amount = 1;
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		for (int i = 0; i < threads.length; ++i) {
+			threads[i].join();
+		}
+
+		engine.update(deltaTime);
+
+		int total = 0;
+		DamageEvent event;
+
+		while ((event = reader.next()) != null) {
+			total += event.amount;
+		}
+
+		assertEquals(4000, total);
+	}
+}
@@ -267,4 +267,279 @@ public class FamilyManagerTests {
 		assertTrue(thrown);
 		assertFalse(manager.notifying());
 	}
+
+	@Test
+	public void removeFromFamilyKeepsArrayConsistent () {
+		Array<Entity> entities = new Array<Entity>();
+		ImmutableArray<Entity> immutableEntities = new ImmutableArray<Entity>(entities);
+		FamilyManager manager = new FamilyManager(immutableEntities);
+
+		ImmutableArray<Entity> familyEntities = manager.getEntitiesFor(Family.all(ComponentA.class).get());
+		Array<Entity> expected = new Array<Entity>();
+
+		for (int i = 0; i < 10; ++i) {
+			Entity entity = new Entity();
+			entity.add(new ComponentA());
+			entities.add(entity);
+			expected.add(entity);
+			manager.updateFamilyMembership(entity);
+		}
+
+		int[] removals = {9, 0, 4, 4, 1};
+
+		for (int removal : removals) {
+			Entity entity = expected.removeIndex(removal);
+			entity.remove(ComponentA.class);
+			manager.updateFamilyMembership(entity);
+
+			assertFalse(familyEntities.contains(entity, true));
+			assertEquals(expected.size, familyEntities.size());
+
+			for (Entity remaining : expected) {
+				assertTrue(familyEntities.contains(remaining, true));
+			}
+		}
+
+		Entity entity = expected.first();
+		entity.remove(ComponentA.class);
+		manager.updateFamilyMembership(entity);
+		entity.add(new ComponentA());
+		manager.updateFamilyMembership(entity);
+
+		assertEquals(expected.size, familyEntities.size());
+		assertSame(entity, familyEntities.get(familyEntities.size() - 1));
+	}
+
+	@Test
+	public void componentDeltaOnlyUpdatesRelatedFamilies () {
+		Array<Entity> entities = new Array<Entity>();
+		ImmutableArray<Entity> immutableEntities = new ImmutableArray<Entity>(entities);
+		FamilyManager manager = new FamilyManager(immutableEntities);
+
+		ImmutableArray<Entity> allA = manager.getEntitiesFor(Family.all(ComponentA.class).get());
+		ImmutableArray<Entity> oneB = manager.getEntitiesFor(Family.one(ComponentB.class, ComponentC.class).get());
+		ImmutableArray<Entity> excludeA = manager.getEntitiesFor(Family.exclude(ComponentA.class).get());
+
+		int indexA = ComponentType.getIndexFor(ComponentA.class);
+		int indexB = ComponentType.getIndexFor(ComponentB.class);
+
+		Entity entity = new Entity();
+		entities.add(entity);
+		manager.updateFamilyMembership(entity);
+
+		assertEquals(0, allA.size());
+		assertEquals(0, oneB.size());
+		assertEquals(1, excludeA.size());
+
+		entity.add(new ComponentA());
+		entity.add(new ComponentB());
+
+		// Membership is cached per component signature, a delta brings every family up to date
+		manager.updateFamilyMembership(entity, indexA);
+
+		assertEquals(1, allA.size());
+		assertEquals(1, oneB.size());
+		assertEquals(0, excludeA.size());
+
+		manager.updateFamilyMembership(entity, indexB);
+
+		assertEquals(1, allA.size());
+		assertEquals(1, oneB.size());
+
+		entity.remove(ComponentA.class);
+		manager.updateFamilyMembership(entity, indexA);
+
+		assertEquals(0, allA.size());
+		assertEquals(1, oneB.size());
+		assertEquals(1, excludeA.size());
+	}
+
+	@Test
+	public void componentDeltaWithoutFamilies () {
+		Array<Entity> entities = new Array<Entity>();
+		ImmutableArray<Entity> immutableEntities = new ImmutableArray<Entity>(entities);
+		FamilyManager manager = new FamilyManager(immutableEntities);
+		final int[] notifications = {0};
+
+		manager.addEntityListener(Family.all(ComponentA.class).get(), 0, new EntityListener() {
+			@Override
+			public void entityAdded (Entity entity) {
+				notifications[0]++;
+			}
+
+			@Override
+			public void entityRemoved (Entity entity) {
+				notifications[0]++;
+			}
+		});
+
+		Entity entity = new Entity();
+		entity.add(new ComponentA());
+		entities.add(entity);
+		manager.updateFamilyMembership(entity);
+
+		assertEquals(1, notifications[0]);
+
+		entity.add(new ComponentC());
+		manager.updateFamilyMembership(entity, ComponentType.getIndexFor(ComponentC.class));
+		manager.updateFamilyMembership(entity, Integer.MAX_VALUE);
+
+		assertEquals(1, notifications[0]);
+	}
+
+	@Test
+	public void membershipCachedPerSignature () {
+		Array<Entity> entities = new Array<Entity>();
+		ImmutableArray<Entity> immutableEntities = new ImmutableArray<Entity>(entities);
+		FamilyManager manager = new FamilyManager(immutableEntities);
+
+		Family familyA = Family.all(ComponentA.class).get();
+		Family familyAB = Family.all(ComponentA.class, ComponentB.class).get();
+		manager.getEntitiesFor(familyA);
+		manager.getEntitiesFor(familyAB);
+
+		Entity entity1 = new Entity();
+		entity1.add(new ComponentA());
+		Entity entity2 = new Entity();
+		entity2.add(new ComponentA());
+		entities.add(entity1);
+		entities.add(entity2);
+		manager.updateFamilyMembership(entity1);
+		manager.updateFamilyMembership(entity2);
+
+		assertNotNull(entity1.signature);
+		assertSame(entity1.signature, entity2.signature);
+		assertTrue(entity1.signature.familyBits.get(familyA.getIndex()));
+		assertFalse(entity1.signature.familyBits.get(familyAB.getIndex()));
+
+		FamilyManager.Signature signatureA = entity1.signature;
+		int indexB = ComponentType.getIndexFor(ComponentB.class);
+
+		entity1.add(new ComponentB());
+		manager.updateFamilyMembership(entity1, indexB);
+
+		FamilyManager.Signature signatureAB = entity1.signature;
+		assertNotSame(signatureA, signatureAB);
+		assertSame(signatureAB, signatureA.edges.get(indexB));
+		assertSame(signatureA, signatureAB.edges.get(indexB));
+		assertTrue(entity1.getFamilyBits().get(familyAB.getIndex()));
+
+		// the second entity follows the transition edge
+		entity2.add(new ComponentB());
+		manager.updateFamilyMembership(entity2, indexB);
+		assertSame(signatureAB, entity2.signature);
+
+		entity2.remove(ComponentB.class);
+		manager.updateFamilyMembership(entity2, indexB);
+		assertSame(signatureA, entity2.signature);
+		assertFalse(entity2.getFamilyBits().get(familyAB.getIndex()));
+	}
+
+	@Test
+	public void staleTransitionHintFallsBackToLookup () {
+		Array<Entity> entities = new Array<Entity>();
+		ImmutableArray<Entity> immutableEntities = new ImmutableArray<Entity>(entities);
+		FamilyManager manager = new FamilyManager(immutableEntities);
+
+		ImmutableArray<Entity> familyB = manager.getEntitiesFor(Family.all(ComponentB.class).get());
+		ImmutableArray<Entity> familyC = manager.getEntitiesFor(Family.all(ComponentC.class).get());
+
+		Entity entity = new Entity();
+		entity.add(new ComponentA());
+		entities.add(entity);
+		manager.updateFamilyMembership(entity);
+
+		// several changes processed with the hint of only one of them
+		entity.add(new ComponentB());
+		entity.add(new ComponentC());
+		manager.updateFamilyMembership(entity, ComponentType.getIndexFor(ComponentB.class));
+
+		assertEquals(1, familyB.size());
+		assertEquals(1, familyC.size());
+		assertTrue(entity.signature.componentBits.equals(entity.getComponentBits()));
+	}
+
+	@Test
+	public void lateFamilyUpdatesCachedSignatures () {
+		Array<Entity> entities = new Array<Entity>();
+		ImmutableArray<Entity> immutableEntities = new ImmutableArray<Entity>(entities);
+		FamilyManager manager = new FamilyManager(immutableEntities);
+
+		Entity entity = new Entity();
+		entity.add(new ComponentA());
+		entity.add(new ComponentC());
+		entities.add(entity);
+		manager.updateFamilyMembership(entity);
+
+		Family family = Family.all(ComponentA.class, ComponentC.class).exclude(ComponentB.class).get();
+		ImmutableArray<Entity> familyEntities = manager.getEntitiesFor(family);
+
+		assertEquals(1, familyEntities.size());
+		assertTrue(entity.signature.familyBits.get(family.getIndex()));
+
+		Entity other = new Entity();
+		other.add(new ComponentC());
+		other.add(new ComponentA());
+		entities.add(other);
+		manager.updateFamilyMembership(other);
+
+		assertSame(entity.signature, other.signature);
+		assertEquals(2, familyEntities.size());
+	}
+
+	@Test
+	public void lateFamilyPopulatedFromSignatures () {
+		Array<Entity> entities = new Array<Entity>();
+		ImmutableArray<Entity> immutableEntities = new ImmutableArray<Entity>(entities);
+		FamilyManager manager = new FamilyManager(immutableEntities);
+		final int[] notifications = {0};
+		manager.addEntityListener(Family.all(ComponentA.class).get(), 0, new EntityListener() {
+			@Override
+			public void entityAdded (Entity entity) {
+				++notifications[0];
+			}
+
+			@Override
+			public void entityRemoved (Entity entity) {
+				++notifications[0];
+			}
+		});
+
+		for (int i = 0; i < 10; ++i) {
+			Entity entity = new Entity();
+			entity.add(new ComponentA());
+
+			if (i % 2 == 0) {
+				entity.add(new ComponentB());
+			}
+
+			entities.add(entity);
+			manager.updateFamilyMembership(entity);
+		}
+
+		// Not known to the manager yet, its membership is computed from its components.
+		Entity unknown = new Entity();
+		unknown.add(new ComponentB());
+		entities.add(unknown);
+
+		assertEquals(10, notifications[0]);
+
+		ImmutableArray<Entity> familyEntities = manager.getEntitiesFor(Family.all(ComponentB.class).get());
+
+		assertEquals(10, notifications[0]);
+		assertEquals(6, familyEntities.size());
+
+		for (int i = 0; i < 5; ++i) {
+			assertSame(entities.get(i * 2), familyEntities.get(i));
+		}
+
+		assertSame(unknown, familyEntities.get(5));
+		assertNotNull(unknown.signature);
+		assertTrue(unknown.getFamilyBits().get(Family.all(ComponentB.class).get().getIndex()));
+
+		entities.get(0).remove(ComponentB.class);
+		manager.updateFamilyMembership(entities.get(0));
+
+		assertEquals(5, familyEntities.size());
+	}
 }
@@ -18,10 +18,14 @@ package com.badlogic.ashley.core;
 
 import static org.junit.Assert.*;
 
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
 import com.badlogic.ashley.core.Family.Builder;
 import org.junit.Test;
 
 import com.badlogic.ashley.systems.IteratingSystem;
+import com.badlogic.gdx.utils.Bits;
 
 @SuppressWarnings("unchecked")
 public class FamilyTests {
@@ -362,4 +366,171 @@ public class FamilyTests {
 		assertFalse(family.matches(entity));
 	}
 
+	@Test
+	public void reusedBuilder () {
+		Builder builder = new Builder();
+
+		Family family1 = builder.reset().all(ComponentA.class, ComponentB.class).exclude(ComponentC.class).get();
+		Family family2 = builder.reset().all(ComponentB.class).get();
+		Family family3 = builder.reset().all(ComponentB.class, ComponentA.class).exclude(ComponentC.class).get();
+
+		assertSame(family1, family3);
+		assertNotSame(family1, family2);
+		assertSame(family2, Family.all(ComponentB.class).get());
+
+		// Replacing a component set does not keep previously set types
+		Family family4 = builder.reset().all(ComponentA.class).all(ComponentB.class).get();
+		assertSame(family2, family4);
+	}
+
+	@Test
+	public void builderChangesDoNotAffectFamily () {
+		Builder builder = new Builder();
+		Family family = builder.all(ComponentA.class).get();
+
+		builder.all(ComponentB.class).exclude(ComponentC.class);
+
+		Entity entity = new Entity();
+		entity.add(new ComponentA());
+		entity.add(new ComponentC());
+
+		assertTrue(family.matches(entity));
+		assertSame(family, Family.all(ComponentA.class).get());
+	}
+
+	@Test
+	public void independentBuilders () {
+		Builder builder1 = Family.all(ComponentA.class);
+		Builder builder2 = Family.all(ComponentB.class);
+
+		assertNotSame(builder1, builder2);
+		assertSame(Family.all(ComponentA.class).get(), builder1.get());
+		assertSame(Family.all(ComponentB.class).get(), builder2.get());
+	}
+
+	@Test
+	public void staticBuildersRecycled () {
+		Builder builder = Family.all(ComponentA.class);
+		Family family = builder.get();
+
+		// The lookup gave the builder back, the next static call takes it again.
+		assertSame(builder, Family.one(ComponentB.class));
+		assertSame(family, Family.all(ComponentA.class).get());
+
+		Builder owned = new Builder();
+		owned.all(ComponentA.class).get();
+
+		assertNotSame(owned, Family.exclude(ComponentC.class));
+	}
+
+	@Test
+	public void concurrentFamilies () throws Exception {
+		final int numFamilies = 50;
+		final int numThreads = 4;
+		ComponentClassFactory cl = new ComponentClassFactory();
+		final Class<? extends Component>[] types = new Class[numFamilies];
+
+		for (int i = 0; i < numFamilies; ++i) {
+			types[i] = cl.createComponentType("ConcurrentFamilyComponent" + i);
+		}
+
+		final Family[][] results = new Family[numThreads][numFamilies];
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[numThreads];
+
+		for (int t = 0; t < numThreads; ++t) {
+			final int thread = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run () {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+
+					Builder builder = new Builder();
+
+					for (int i = 0; i < numFamilies; ++i) {
+						results[thread][i] = builder.reset().all(types[i]).exclude(ComponentA.class).get();
+					}
+				}
+			};
+			threads[t].start();
+		}
+
+		start.countDown();
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		for (int i = 0; i < numFamilies; ++i) {
+			Family family = Family.all(types[i]).exclude(ComponentA.class).get();
+
+			for (int t = 0; t < numThreads; ++t) {
+				assertSame(family, results[t][i]);
+			}
+
+			for (int j = 0; j < i; ++j) {
+				assertNotEquals(family.getIndex(), results[0][j].getIndex());
+			}
+		}
+	}
+
+	@Test
+	public void masksMatchLikeBits () throws Exception {
+		// enough types for some to be beyond the long masks
+		ComponentClassFactory cl = new ComponentClassFactory();
+		int numTypes = ComponentType.MASK_SIZE + 20;
+		Class<? extends Component>[] types = new Class[numTypes];
+
+		for (int i = 0; i < numTypes; ++i) {
+			types[i] = cl.createComponentType("MaskComponent" + i);
+		}
+
+		Random random = new Random(1234);
+		Entity[] entities = new Entity[50];
+
+		for (int i = 0; i < entities.length; ++i) {
+			entities[i] = new Entity();
+
+			for (int j = 0; j < 20; ++j) {
+				entities[i].add(types[random.nextInt(numTypes)].newInstance());
+			}
+
+			for (int j = 0; j < 5; ++j) {
+				entities[i].remove(types[random.nextInt(numTypes)]);
+			}
+		}
+
+		for (int i = 0; i < 200; ++i) {
+			Family family = Family.all(types[random.nextInt(numTypes)]).one(types[random.nextInt(numTypes)],
+				types[random.nextInt(numTypes)]).exclude(types[random.nextInt(numTypes)]).get();
+
+			for (Entity entity : entities) {
+				assertEquals(family.matches(entity.getComponentBits()), family.matches(entity));
+			}
+		}
+	}
+
+	@Test
+	public void entityMasksFollowComponents () throws Exception {
+		ComponentClassFactory cl = new ComponentClassFactory();
+		Entity entity = new Entity();
+		Class<? extends Component>[] types = new Class[ComponentType.MASK_SIZE];
+
+		for (int i = 0; i < types.length; ++i) {
+			types[i] = cl.createComponentType("EntityMaskComponent" + i);
+			entity.add(types[i].newInstance());
+		}
+
+		for (int i = 0; i < types.length; i += 2) {
+			entity.remove(types[i]);
+		}
+
+		Bits componentBits = entity.getComponentBits();
+		assertEquals(ComponentType.getMask(componentBits, 0), entity.componentMask0);
+		assertEquals(ComponentType.getMask(componentBits, 1), entity.componentMask1);
+	}
 }
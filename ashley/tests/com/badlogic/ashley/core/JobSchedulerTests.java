@@ -0,0 +1,231 @@
+package com.badlogic.ashley.core;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+
+public class JobSchedulerTests {
+	private float deltaTime = 0.16f;
+
+	private static class PathComponent implements Component {
+		public int length;
+	}
+
+	private static class RecordingJob implements Job {
+		private final String name;
+		private final Array<String> order;
+
+		public RecordingJob (String name, Array<String> order) {
+			this.name = name;
+			this.order = order;
+		}
+
+		@Override
+		public void execute () {
+			synchronized (order) {
+				order.add(name);
+			}
+		}
+	}
+
+	private static class CountingJob implements Job {
+		public final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public void execute () {
+			count.incrementAndGet();
+		}
+	}
+
+	@Test
+	public void dependenciesRunFirst () {
+		JobScheduler scheduler = new JobScheduler(new ForkJoinPool(4));
+
+		for (int i = 0; i < 100; ++i) {
+			Array<String> order = new Array<String>();
+			JobHandle rebuild = scheduler.schedule(new RecordingJob("rebuild", order));
+			JobHandle sort = scheduler.schedule(new RecordingJob("sort", order));
+			JobHandle path = scheduler.schedule(new RecordingJob("path", order), rebuild, sort);
+			JobHandle steer = scheduler.schedule(new RecordingJob("steer", order), path);
+
+			steer.complete();
+
+			assertTrue(steer.isDone());
+			assertTrue(path.isDone());
+			assertEquals(4, order.size);
+			assertEquals("path", order.get(2));
+			assertEquals("steer", order.get(3));
+
+			scheduler.completeAll();
+		}
+	}
+
+	@Test
+	public void jobsFanOutFromJobs () {
+		final JobScheduler scheduler = new JobScheduler(new ForkJoinPool(4));
+		final CountingJob leaf = new CountingJob();
+		CountingJob root = new CountingJob() {
+			@Override
+			public void execute () {
+				super.execute();
+
+				for (int i = 0; i < 100; ++i) {
+					scheduler.schedule(leaf);
+				}
+			}
+		};
+
+		scheduler.schedule(root);
+		scheduler.completeAll();
+
+		assertEquals(1, root.count.get());
+		assertEquals(100, leaf.count.get());
+	}
+
+	@Test
+	public void failureSkipsDependents () {
+		JobScheduler scheduler = new JobScheduler(new ForkJoinPool(2));
+		CountingJob dependentJob = new CountingJob();
+		CountingJob independentJob = new CountingJob();
+
+		JobHandle failing = scheduler.schedule(new Job() {
+			@Override
+			public void execute () {
+				throw new IllegalStateException("no navmesh");
+			}
+		});
+		JobHandle dependent = scheduler.schedule(dependentJob, failing);
+		scheduler.schedule(independentJob);
+
+		try {
+			dependent.complete();
+			fail();
+		}
+		catch (IllegalStateException e) {
+			assertEquals("no navmesh", e.getMessage());
+		}
+
+		try {
+			scheduler.completeAll();
+			fail();
+		}
+		catch (IllegalStateException e) {
+		}
+
+		assertEquals(0, dependentJob.count.get());
+		assertEquals(1, independentJob.count.get());
+
+		// Failures do not carry over.
+		scheduler.schedule(dependentJob);
+		scheduler.completeAll();
+
+		assertEquals(1, dependentJob.count.get());
+	}
+
+	@Test
+	public void handlesReused () {
+		JobScheduler scheduler = new JobScheduler(new ForkJoinPool(2));
+		CountingJob job = new CountingJob();
+
+		JobHandle first = scheduler.schedule(job);
+		scheduler.completeAll();
+		JobHandle second = scheduler.schedule(job);
+
+		assertSame(first, second);
+
+		scheduler.completeAll();
+
+		assertEquals(2, job.count.get());
+	}
+
+	@Test
+	public void systemJobsDoneBeforeSyncPoint () {
+		ScheduledEngine engine = new ScheduledEngine();
+		final ImmutableArray<Entity> entities = engine.getEntitiesFor(Family.all(PathComponent.class).get());
+
+		for (int i = 0; i < 50; ++i) {
+			Entity entity = new Entity();
+			entity.add(new PathComponent());
+			engine.addEntity(entity);
+		}
+
+		final int[] total = {0};
+
+		engine.addSystem(new EntitySystem(0) {
+			{
+				writes(PathComponent.class);
+			}
+
+			@Override
+			public void update (float deltaTime) {
+				ScheduledEngine engine = (ScheduledEngine)getEngine();
+				JobHandle rebuild = engine.schedule(new CountingJob());
+
+				for (int i = 0; i < entities.size(); ++i) {
+					final PathComponent path = entities.get(i).getComponent(PathComponent.class);
+					engine.schedule(new Job() {
+						@Override
+						public void execute () {
+							path.length += 10;
+						}
+					}, rebuild);
+				}
+			}
+		});
+		engine.addSystem(new EntitySystem(1) {
+			{
+				reads(PathComponent.class);
+			}
+
+			@Override
+			public void update (float deltaTime) {
+				for (int i = 0; i < entities.size(); ++i) {
+					total[0] += entities.get(i).getComponent(PathComponent.class).length;
+				}
+			}
+		});
+
+		assertEquals(2, engine.getBatchCount());
+
+		engine.update(deltaTime);
+
+		assertEquals(500, total[0]);
+	}
+
+	@Test(timeout = 10000)
+	public void enginesWaitingOnPoolThreads () {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		ShardedWorld world = new ShardedWorld(pool);
+		final AtomicInteger count = new AtomicInteger();
+
+		// More shards than pool threads, each shard waits for its job at the sync point on a pool thread.
+		for (int i = 0; i < 6; ++i) {
+			final ScheduledEngine shard = new ScheduledEngine(pool);
+			shard.addSystem(new EntitySystem() {
+				@Override
+				public void update (float deltaTime) {
+					shard.schedule(new Job() {
+						@Override
+						public void execute () {
+							count.incrementAndGet();
+						}
+					});
+				}
+			});
+			world.addShard(shard);
+		}
+
+		for (int i = 0; i < 20; ++i) {
+			world.update(deltaTime);
+		}
+
+		assertEquals(6 * 20, count.get());
+		pool.shutdown();
+	}
+}
@@ -292,4 +292,84 @@ public class PooledEngineTests {
 
 		assertNotEquals(newComponent1, newComponent2);
 	}
+
+	@Test
+	public void recycledEntityInvalidatesHandle() {
+		PooledEngine engine = new PooledEngine();
+
+		Entity entity = engine.createEntity();
+		engine.addEntity(entity);
+		long handle = entity.getHandle();
+
+		assertSame(entity, engine.getEntity(handle));
+
+		engine.removeEntity(entity);
+
+		Entity recycled = engine.createEntity();
+		assertSame(entity, recycled);
+		assertEquals(Entity.NO_HANDLE, recycled.getHandle());
+
+		engine.addEntity(recycled);
+
+		assertNull(engine.getEntity(handle));
+		assertSame(recycled, engine.getEntity(recycled.getHandle()));
+		assertNotEquals(handle, recycled.getHandle());
+	}
+
+	@Test
+	public void createEntitiesFromPools () {
+		PooledEngine engine = new PooledEngine();
+		ImmutableArray<Entity> familyEntities = engine.getEntitiesFor(Family.all(PoolableComponent.class).get());
+
+		ImmutableArray<Entity> created = engine.createEntities(10, PoolableComponent.class, ComponentA.class);
+		Array<PoolableComponent> components = new Array<PoolableComponent>();
+
+		for (Entity entity : created) {
+			PoolableComponent component = poolableMapper.get(entity);
+			component.reset = false;
+			components.add(component);
+		}
+
+		assertEquals(10, familyEntities.size());
+
+		engine.removeAllEntities();
+
+		assertEquals(0, familyEntities.size());
+
+		for (PoolableComponent component : components) {
+			assertTrue(component.reset);
+		}
+
+		created = engine.createEntities(10, PoolableComponent.class, ComponentA.class);
+
+		for (Entity entity : created) {
+			assertTrue(components.contains(poolableMapper.get(entity), true));
+		}
+	}
+
+	@Test
+	public void batchRemovalRecyclesEntities () {
+		PooledEngine engine = new PooledEngine();
+		Array<Entity> entities = new Array<Entity>();
+
+		for (int i = 0; i < 20; ++i) {
+			Entity entity = engine.createEntity();
+			entity.add(engine.createComponent(PoolableComponent.class));
+			poolableMapper.get(entity).reset = false;
+			engine.addEntity(entity);
+			entities.add(entity);
+		}
+
+		engine.removeAllEntities(Family.all(PoolableComponent.class).get());
+
+		assertEquals(0, engine.getEntities().size());
+
+		for (Entity entity : entities) {
+			assertEquals(0, entity.getComponents().size());
+			assertEquals(Entity.NO_HANDLE, entity.getHandle());
+		}
+
+		Entity recycled = engine.createEntity();
+		assertTrue(entities.contains(recycled, true));
+	}
 }
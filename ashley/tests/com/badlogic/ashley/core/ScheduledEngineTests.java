@@ -0,0 +1,365 @@
+package com.badlogic.ashley.core;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+
+public class ScheduledEngineTests {
+	private float deltaTime = 0.16f;
+
+	private static class PositionComponent implements Component {
+		public float x;
+	}
+
+	private static class VelocityComponent implements Component {
+		public float x;
+	}
+
+	private static class HealthComponent implements Component {
+	}
+
+	private static class RecordingSystem extends EntitySystem {
+		private final Array<EntitySystem> order;
+
+		public RecordingSystem (int priority, Array<EntitySystem> order) {
+			super(priority);
+			this.order = order;
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			synchronized (order) {
+				order.add(this);
+			}
+		}
+	}
+
+	private static class MovementSystem extends RecordingSystem {
+		public MovementSystem (int priority, Array<EntitySystem> order) {
+			super(priority, order);
+			reads(VelocityComponent.class);
+			writes(PositionComponent.class);
+		}
+	}
+
+	private static class RenderSystem extends RecordingSystem {
+		public RenderSystem (int priority, Array<EntitySystem> order) {
+			super(priority, order);
+			reads(PositionComponent.class);
+		}
+	}
+
+	private static class HealthSystem extends RecordingSystem {
+		public HealthSystem (int priority, Array<EntitySystem> order) {
+			super(priority, order);
+			writes(HealthComponent.class);
+		}
+	}
+
+	private static class UndeclaredSystem extends RecordingSystem {
+		public UndeclaredSystem (int priority, Array<EntitySystem> order) {
+			super(priority, order);
+		}
+	}
+
+	private static class BarrierSystem extends EntitySystem {
+		private final CyclicBarrier barrier;
+		public Thread thread;
+
+		public BarrierSystem (CyclicBarrier barrier) {
+			this.barrier = barrier;
+			reads(PositionComponent.class);
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			thread = Thread.currentThread();
+
+			try {
+				barrier.await(5, TimeUnit.SECONDS);
+			}
+			catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	private static class OtherBarrierSystem extends BarrierSystem {
+		public OtherBarrierSystem (CyclicBarrier barrier) {
+			super(barrier);
+		}
+	}
+
+	private static class SpawnSystem extends EntitySystem {
+		public SpawnSystem () {
+			super(0);
+			writes(PositionComponent.class);
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			EntityCommandBuffer commands = getCommandBuffer();
+			commands.add(commands.createEntity(), new PositionComponent());
+		}
+	}
+
+	private static class CountingSystem extends EntitySystem {
+		private ImmutableArray<Entity> entities;
+		public int count = -1;
+
+		public CountingSystem () {
+			super(1);
+			reads(PositionComponent.class);
+		}
+
+		@Override
+		public void addedToEngine (Engine engine) {
+			entities = engine.getEntitiesFor(Family.all(PositionComponent.class).get());
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			count = entities.size();
+		}
+	}
+
+	private static class AccessingSystem extends EntitySystem {
+		private final Entity entity;
+		private final boolean add;
+
+		public AccessingSystem (Entity entity, boolean add) {
+			this.entity = entity;
+			this.add = add;
+			reads(PositionComponent.class);
+			writes(VelocityComponent.class);
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			entity.getComponent(PositionComponent.class).x += entity.getComponent(VelocityComponent.class).x;
+
+			if (add) {
+				entity.add(new HealthComponent());
+			}
+		}
+	}
+
+	@Test
+	public void conflictingSystemsInPriorityOrder () {
+		ScheduledEngine engine = new ScheduledEngine();
+		Array<EntitySystem> order = new Array<EntitySystem>();
+		RenderSystem render = new RenderSystem(1, order);
+		MovementSystem movement = new MovementSystem(0, order);
+		HealthSystem health = new HealthSystem(2, order);
+		engine.addSystem(render);
+		engine.addSystem(movement);
+		engine.addSystem(health);
+
+		assertEquals(2, engine.getBatchCount());
+		assertEquals(2, engine.getBatch(0).size());
+		assertSame(movement, engine.getBatch(0).get(0));
+		assertSame(health, engine.getBatch(0).get(1));
+		assertSame(render, engine.getBatch(1).get(0));
+
+		engine.update(deltaTime);
+
+		assertEquals(3, order.size);
+		assertSame(render, order.get(2));
+	}
+
+	@Test
+	public void undeclaredSystemsRunAlone () {
+		ScheduledEngine engine = new ScheduledEngine();
+		Array<EntitySystem> order = new Array<EntitySystem>();
+		engine.addSystem(new RenderSystem(0, order));
+		engine.addSystem(new UndeclaredSystem(1, order));
+		engine.addSystem(new HealthSystem(2, order));
+
+		assertEquals(3, engine.getBatchCount());
+
+		engine.removeSystem(engine.getSystem(UndeclaredSystem.class));
+
+		assertEquals(1, engine.getBatchCount());
+	}
+
+	@Test
+	public void nonConflictingSystemsRunConcurrently () {
+		ScheduledEngine engine = new ScheduledEngine();
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		BarrierSystem system1 = new BarrierSystem(barrier);
+		BarrierSystem system2 = new OtherBarrierSystem(barrier);
+		engine.addSystem(system1);
+		engine.addSystem(system2);
+
+		// Would time out if the systems ran one after the other.
+		engine.update(deltaTime);
+
+		assertNotSame(system1.thread, system2.thread);
+		assertSame(Thread.currentThread(), system1.thread);
+	}
+
+	@Test
+	public void commandBuffersPlayedBackAtSyncPoint () {
+		ScheduledEngine engine = new ScheduledEngine();
+		CountingSystem counting = new CountingSystem();
+		engine.addSystem(new SpawnSystem());
+		engine.addSystem(counting);
+
+		engine.update(deltaTime);
+
+		assertEquals(1, counting.count);
+		assertEquals(1, engine.getEntities().size());
+	}
+
+	@Test
+	public void failingSystemRethrown () {
+		ScheduledEngine engine = new ScheduledEngine();
+		Array<EntitySystem> order = new Array<EntitySystem>();
+		engine.addSystem(new RenderSystem(0, order));
+		engine.addSystem(new HealthSystem(1, order) {
+			private boolean failed;
+
+			@Override
+			public void update (float deltaTime) {
+				if (!failed) {
+					failed = true;
+					throw new IllegalArgumentException();
+				}
+
+				super.update(deltaTime);
+			}
+		});
+
+		try {
+			engine.update(deltaTime);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+
+		engine.update(deltaTime);
+
+		assertEquals(3, order.size);
+	}
+
+	@Test
+	public void validationAcceptsDeclaredAccess () {
+		ScheduledEngine engine = new ScheduledEngine();
+		Entity entity = new Entity();
+		entity.add(new PositionComponent());
+		VelocityComponent velocity = new VelocityComponent();
+		velocity.x = 2.0f;
+		entity.add(velocity);
+		engine.addEntity(entity);
+		engine.addSystem(new AccessingSystem(entity, false));
+		engine.setValidating(true);
+
+		engine.update(deltaTime);
+
+		assertTrue(engine.isValidating());
+		assertEquals(2.0f, entity.getComponent(PositionComponent.class).x, 0.0f);
+	}
+
+	@Test
+	public void validationDetectsUndeclaredAccess () {
+		ScheduledEngine engine = new ScheduledEngine();
+		Entity entity = new Entity();
+		entity.add(new PositionComponent());
+		entity.add(new VelocityComponent());
+		engine.addEntity(entity);
+		engine.addSystem(new AccessingSystem(entity, true));
+
+		engine.update(deltaTime);
+
+		assertNotNull(entity.getComponent(HealthComponent.class));
+
+		entity.remove(HealthComponent.class);
+		engine.setValidating(true);
+
+		try {
+			engine.update(deltaTime);
+			fail();
+		}
+		catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains(HealthComponent.class.getName()));
+		}
+
+		// Accesses outside of system updates are not checked.
+		entity.add(new HealthComponent());
+	}
+
+	@Test
+	public void validationChecksHas () {
+		ScheduledEngine engine = new ScheduledEngine();
+		final Entity entity = new Entity();
+		entity.add(new PositionComponent());
+		engine.addEntity(entity);
+		final ComponentMapper<PositionComponent> pm = ComponentMapper.getFor(PositionComponent.class);
+		final ComponentMapper<HealthComponent> hm = ComponentMapper.getFor(HealthComponent.class);
+		final boolean[] has = {false};
+		engine.addSystem(new EntitySystem() {
+			{
+				reads(PositionComponent.class);
+			}
+
+			@Override
+			public void update (float deltaTime) {
+				has[0] = pm.has(entity);
+				hm.has(entity);
+			}
+		});
+		engine.setValidating(true);
+
+		try {
+			engine.update(deltaTime);
+			fail();
+		}
+		catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains(HealthComponent.class.getName()));
+		}
+
+		assertTrue(has[0]);
+	}
+
+	@Test
+	public void sharedDefaultPool () {
+		assertSame(new ScheduledEngine().getJobScheduler().getPool(), new ScheduledEngine().getJobScheduler().getPool());
+	}
+
+	@Test
+	public void validationDetectsDirectStructuralChanges () {
+		ScheduledEngine engine = new ScheduledEngine();
+		final Entity entity = new Entity();
+		engine.addEntity(entity);
+		Array<EntitySystem> order = new Array<EntitySystem>();
+		engine.addSystem(new RenderSystem(0, order));
+		engine.addSystem(new HealthSystem(1, order) {
+			@Override
+			public void update (float deltaTime) {
+				entity.add(new HealthComponent());
+			}
+		});
+		engine.setValidating(true);
+
+		try {
+			engine.update(deltaTime);
+			fail();
+		}
+		catch (IllegalStateException e) {
+		}
+
+		engine.removeSystem(engine.getSystems().get(0));
+		entity.remove(HealthComponent.class);
+
+		// Running alone, the system may change the entity directly.
+		engine.update(deltaTime);
+
+		assertNotNull(entity.getComponent(HealthComponent.class));
+	}
+}
@@ -0,0 +1,393 @@
+package com.badlogic.ashley.core;
+
+import static org.junit.Assert.*;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.badlogic.ashley.utils.ImmutableArray;
+
+public class ShardedWorldTests {
+	private float deltaTime = 0.16f;
+
+	public static class PositionComponent implements Component {
+		public float x;
+	}
+
+	private static class CountingListener implements EntityListener {
+		public int addedCount = 0;
+		public int removedCount = 0;
+
+		@Override
+		public void entityAdded (Entity entity) {
+			++addedCount;
+		}
+
+		@Override
+		public void entityRemoved (Entity entity) {
+			++removedCount;
+		}
+	}
+
+	private static class BarrierSystem extends EntitySystem {
+		private final CyclicBarrier barrier;
+		public Thread thread;
+
+		public BarrierSystem (CyclicBarrier barrier) {
+			this.barrier = barrier;
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			thread = Thread.currentThread();
+
+			try {
+				barrier.await(5, TimeUnit.SECONDS);
+			}
+			catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	private static class CountingSystem extends EntitySystem {
+		private final AtomicInteger updates;
+
+		public CountingSystem (AtomicInteger updates) {
+			this.updates = updates;
+			reads();
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			updates.incrementAndGet();
+		}
+	}
+
+	/** Moves the entities that crossed the border of its region to the neighbouring shard. */
+	private static class BorderSystem extends EntitySystem {
+		private final ShardedWorld world;
+		private final Engine neighbour;
+		private ImmutableArray<Entity> entities;
+
+		public BorderSystem (ShardedWorld world, Engine neighbour) {
+			this.world = world;
+			this.neighbour = neighbour;
+		}
+
+		@Override
+		public void addedToEngine (Engine engine) {
+			entities = engine.getEntitiesFor(Family.all(PositionComponent.class).get());
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			for (int i = 0; i < entities.size(); ++i) {
+				Entity entity = entities.get(i);
+
+				if (entity.getComponent(PositionComponent.class).x > 100.0f) {
+					world.migrate(entity, neighbour);
+				}
+			}
+		}
+	}
+
+	/** Replaces the components of its shard's entities with pooled ones, recycles an entity and sends some to its neighbour. */
+	private static class ChurnSystem extends EntitySystem {
+		private final ShardedWorld world;
+		private final PooledEngine engine;
+		private final PooledEngine neighbour;
+		private ImmutableArray<Entity> entities;
+		private int frame;
+
+		public ChurnSystem (ShardedWorld world, PooledEngine engine, PooledEngine neighbour) {
+			this.world = world;
+			this.engine = engine;
+			this.neighbour = neighbour;
+		}
+
+		@Override
+		public void addedToEngine (Engine engine) {
+			entities = engine.getEntitiesFor(Family.all(PositionComponent.class).get());
+		}
+
+		@Override
+		public void update (float deltaTime) {
+			++frame;
+
+			for (int i = 0; i < entities.size(); ++i) {
+				Entity entity = entities.get(i);
+				float x = entity.remove(PositionComponent.class).x;
+				PositionComponent position = engine.createComponent(PositionComponent.class);
+				position.x = x + 1.0f;
+				entity.add(position);
+
+				if ((i + frame) % 3 == 0) {
+					world.migrate(entity, neighbour);
+				}
+			}
+
+			if (entities.size() > 0) {
+				engine.removeEntity(entities.first());
+				Entity entity = engine.createEntity();
+				entity.add(engine.createComponent(PositionComponent.class));
+				engine.addEntity(entity);
+			}
+		}
+	}
+
+	@Test
+	public void shardsUpdatedInParallel () {
+		ShardedWorld world = new ShardedWorld();
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		Engine shard1 = new Engine();
+		Engine shard2 = new Engine();
+		BarrierSystem system1 = new BarrierSystem(barrier);
+		BarrierSystem system2 = new BarrierSystem(barrier);
+		shard1.addSystem(system1);
+		shard2.addSystem(system2);
+		world.addShard(shard1);
+		world.addShard(shard2);
+		world.addShard(shard1);
+
+		assertEquals(2, world.getShards().size());
+
+		// Would time out if the shards were updated one after the other.
+		world.update(deltaTime);
+
+		assertNotSame(system1.thread, system2.thread);
+	}
+
+	@Test
+	public void scheduledShardsShareDefaultPool () {
+		ShardedWorld world = new ShardedWorld();
+		final AtomicInteger updates = new AtomicInteger();
+
+		for (int i = 0; i < 8; ++i) {
+			// Shards wait for their concurrent systems while updated by the threads of the same pool.
+			ScheduledEngine shard = new ScheduledEngine();
+
+			// Systems of the same class replace each other.
+			shard.addSystem(new CountingSystem(updates));
+			shard.addSystem(new CountingSystem(updates) {});
+
+			assertEquals(1, shard.getBatchCount());
+			world.addShard(shard);
+		}
+
+		for (int i = 0; i < 10; ++i) {
+			world.update(deltaTime);
+		}
+
+		assertEquals(8 * 2 * 10, updates.get());
+	}
+
+	@Test(timeout = 10000)
+	public void rejectedShardRethrown () {
+		// Takes a single task, then rejects the others.
+		ShardedWorld world = new ShardedWorld(new Executor() {
+			private int executed;
+
+			@Override
+			public void execute (Runnable command) {
+				if (executed++ > 0) {
+					throw new RejectedExecutionException();
+				}
+
+				new Thread(command).start();
+			}
+		});
+		AtomicInteger updates = new AtomicInteger();
+
+		for (int i = 0; i < 4; ++i) {
+			Engine shard = new Engine();
+			shard.addSystem(new CountingSystem(updates));
+			world.addShard(shard);
+		}
+
+		try {
+			world.update(deltaTime);
+			fail();
+		}
+		catch (RejectedExecutionException e) {
+		}
+
+		assertEquals(1, updates.get());
+	}
+
+	@Test
+	public void migrateEntityAtSyncPoint () {
+		ShardedWorld world = new ShardedWorld();
+		Engine west = new Engine();
+		Engine east = new Engine();
+		world.addShard(west);
+		world.addShard(east);
+		west.addSystem(new BorderSystem(world, east));
+
+		Family family = Family.all(PositionComponent.class).get();
+		CountingListener westListener = new CountingListener();
+		CountingListener eastListener = new CountingListener();
+		west.addEntityListener(family, westListener);
+		east.addEntityListener(family, eastListener);
+
+		Entity staying = new Entity();
+		staying.add(new PositionComponent());
+		west.addEntity(staying);
+
+		Entity leaving = new Entity();
+		PositionComponent position = new PositionComponent();
+		position.x = 150.0f;
+		leaving.add(position);
+		west.addEntity(leaving);
+		long oldHandle = leaving.getHandle();
+
+		assertSame(west, world.getShard(leaving));
+
+		world.update(deltaTime);
+
+		assertSame(east, world.getShard(leaving));
+		assertSame(position, leaving.getComponent(PositionComponent.class));
+		assertEquals(1, west.getEntitiesFor(family).size());
+		assertEquals(1, east.getEntitiesFor(family).size());
+		assertSame(leaving, east.getEntity(leaving.getHandle()));
+		assertNull(west.getEntity(oldHandle));
+		assertEquals(1, westListener.removedCount);
+		assertEquals(1, eastListener.addedCount);
+
+		leaving.remove(PositionComponent.class);
+
+		assertEquals(0, east.getEntitiesFor(family).size());
+	}
+
+	@Test
+	public void migratePooledEntity () {
+		ShardedWorld world = new ShardedWorld();
+		PooledEngine source = new PooledEngine();
+		Engine target = new Engine();
+		world.addShard(source);
+		world.addShard(target);
+
+		Entity entity = source.createEntity();
+		PositionComponent position = source.createComponent(PositionComponent.class);
+		entity.add(position);
+		entity.flags = 3;
+		source.addEntity(entity);
+
+		world.migrate(entity, target);
+		world.processMigrations();
+
+		assertSame(target, world.getShard(entity));
+		assertSame(position, entity.getComponent(PositionComponent.class));
+		assertEquals(3, entity.flags);
+		assertNotSame(entity, source.createEntity());
+	}
+
+	@Test
+	public void migratedPooledEntityUsesTargetPools () {
+		ShardedWorld world = new ShardedWorld();
+		PooledEngine source = new PooledEngine();
+		PooledEngine target = new PooledEngine();
+		world.addShard(source);
+		world.addShard(target);
+
+		Entity entity = source.createEntity();
+		PositionComponent position = source.createComponent(PositionComponent.class);
+		entity.add(position);
+		source.addEntity(entity);
+		// Components are only returned to pools the engine already has.
+		target.createComponent(PositionComponent.class);
+
+		world.migrate(entity, target);
+		world.processMigrations();
+		entity.remove(PositionComponent.class);
+
+		assertNotSame(position, source.createComponent(PositionComponent.class));
+		assertSame(position, target.createComponent(PositionComponent.class));
+
+		target.removeEntity(entity);
+
+		assertNotSame(entity, source.createEntity());
+		assertSame(entity, target.createEntity());
+	}
+
+	@Test
+	public void pooledShardsMigrateConcurrently () {
+		ShardedWorld world = new ShardedWorld();
+		PooledEngine west = new PooledEngine();
+		PooledEngine east = new PooledEngine();
+		west.addSystem(new ChurnSystem(world, west, east));
+		east.addSystem(new ChurnSystem(world, east, west));
+		world.addShard(west);
+		world.addShard(east);
+
+		for (int i = 0; i < 200; ++i) {
+			PooledEngine shard = i % 2 == 0 ? west : east;
+			Entity entity = shard.createEntity();
+			entity.add(shard.createComponent(PositionComponent.class));
+			shard.addEntity(entity);
+		}
+
+		for (int i = 0; i < 200; ++i) {
+			world.update(deltaTime);
+		}
+
+		// A component freed into the pools of the wrong shard could be handed out to two entities.
+		IdentityHashMap<PositionComponent, Entity> owners = new IdentityHashMap<PositionComponent, Entity>();
+
+		for (int i = 0; i < world.getShards().size(); ++i) {
+			ImmutableArray<Entity> entities = world.getShards().get(i).getEntities();
+
+			for (int j = 0; j < entities.size(); ++j) {
+				Entity entity = entities.get(j);
+
+				assertNull(owners.put(entity.getComponent(PositionComponent.class), entity));
+			}
+		}
+
+		assertEquals(200, owners.size());
+	}
+
+	@Test
+	public void droppedMigrations () {
+		ShardedWorld world = new ShardedWorld();
+		Engine shard = new Engine();
+		Engine outside = new Engine();
+		world.addShard(shard);
+
+		Entity removed = new Entity();
+		shard.addEntity(removed);
+		Entity kept = new Entity();
+		shard.addEntity(kept);
+
+		world.migrate(removed, outside);
+		world.migrate(kept, outside);
+		world.migrate(kept, shard);
+		shard.removeEntity(removed);
+		world.update(deltaTime);
+
+		assertSame(shard, world.getShard(kept));
+		assertNull(world.getShard(removed));
+		assertEquals(0, outside.getEntities().size());
+		assertEquals(1, shard.getEntities().size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void changeWhileUpdating () {
+		final ShardedWorld world = new ShardedWorld();
+		Engine shard = new Engine();
+		shard.addSystem(new EntitySystem() {
+			@Override
+			public void update (float deltaTime) {
+				world.addShard(new Engine());
+			}
+		});
+		world.addShard(shard);
+		world.update(deltaTime);
+	}
+}
@@ -171,4 +171,25 @@ public class SignalTests {
 		assertEquals(1, listenerB.count);
 	}
 
+	@Test
+	public void noListeners () {
+		Dummy dummy = new Dummy();
+		Signal<Dummy> signal = new Signal<Dummy>();
+		ListenerMock listener = new ListenerMock();
+
+		signal.dispatch(dummy);
+		signal.remove(listener);
+		signal.removeAllListeners();
+
+		signal.add(listener);
+		signal.dispatch(dummy);
+
+		assertEquals(1, listener.count);
+
+		signal.remove(listener);
+		signal.dispatch(dummy);
+
+		assertEquals(1, listener.count);
+	}
+
 }
@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.systems;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+
+import com.badlogic.ashley.core.Component;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityCommandBuffer;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.core.PooledEngine;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+
+public class AsyncEntitySystemTest {
+	private static final float deltaTime = 0.16f;
+
+	private static class ResultComponent implements Component {
+		public int value;
+	}
+
+	/** Runs work only when asked to, on the calling thread. */
+	private static class ManualExecutor implements Executor {
+		public final Array<Runnable> tasks = new Array<Runnable>();
+
+		@Override
+		public void execute (Runnable command) {
+			tasks.add(command);
+		}
+
+		public void runAll () {
+			while (tasks.size > 0) {
+				tasks.removeIndex(0).run();
+			}
+		}
+	}
+
+	private static class PlannerSystem extends AsyncEntitySystem {
+		public int numPrepared;
+		public int numCompleted;
+		public int input;
+		public int maxWorks = 1;
+		public Thread workThread;
+
+		public PlannerSystem (Executor executor, int syncFrames) {
+			super(0, executor, syncFrames);
+		}
+
+		@Override
+		protected boolean prepare (float deltaTime) {
+			if (numPrepared == maxWorks) {
+				return false;
+			}
+
+			++numPrepared;
+			input = numPrepared * 10;
+			return true;
+		}
+
+		@Override
+		protected void process (EntityCommandBuffer commands) throws Exception {
+			workThread = Thread.currentThread();
+			ResultComponent result = new ResultComponent();
+			result.value = input;
+			commands.add(commands.createEntity(), result);
+		}
+
+		@Override
+		protected void completed () {
+			++numCompleted;
+		}
+	}
+
+	@Test
+	public void workJoinedAtSyncFrame () {
+		ManualExecutor executor = new ManualExecutor();
+		Engine engine = new Engine();
+		ImmutableArray<Entity> results = engine.getEntitiesFor(Family.all(ResultComponent.class).get());
+		PlannerSystem system = new PlannerSystem(executor, 2);
+		system.maxWorks = 2;
+		engine.addSystem(system);
+
+		engine.update(deltaTime);
+
+		assertTrue(system.isWorking());
+		assertEquals(1, executor.tasks.size);
+
+		executor.runAll();
+		engine.update(deltaTime);
+
+		assertEquals(0, results.size());
+		assertTrue(system.isWorking());
+
+		engine.update(deltaTime);
+
+		assertEquals(1, results.size());
+		assertEquals(10, results.get(0).getComponent(ResultComponent.class).value);
+		assertEquals(1, system.numCompleted);
+		// The next work starts in the update joining the previous one.
+		assertEquals(2, system.numPrepared);
+		assertTrue(system.isWorking());
+		assertEquals(2, system.getSyncFrames());
+	}
+
+	@Test
+	public void unfinishedWorkDoesNotBlock () throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		Engine engine = new Engine();
+		ImmutableArray<Entity> results = engine.getEntitiesFor(Family.all(ResultComponent.class).get());
+		PlannerSystem system = new PlannerSystem(null, 1) {
+			@Override
+			protected void process (EntityCommandBuffer commands) throws Exception {
+				release.await();
+				super.process(commands);
+			}
+		};
+		engine.addSystem(system);
+
+		for (int i = 0; i < 5; ++i) {
+			engine.update(deltaTime);
+		}
+
+		assertTrue(system.isWorking());
+		assertEquals(0, results.size());
+
+		release.countDown();
+
+		for (int i = 0; i < 500 && system.isWorking(); ++i) {
+			Thread.sleep(10);
+			engine.update(deltaTime);
+		}
+
+		assertFalse(system.isWorking());
+		assertEquals(1, results.size());
+		assertNotSame(Thread.currentThread(), system.workThread);
+	}
+
+	@Test
+	public void failedWorkRethrownOnJoin () {
+		ManualExecutor executor = new ManualExecutor();
+		Engine engine = new Engine();
+		engine.addSystem(new PlannerSystem(executor, 1) {
+			@Override
+			protected void process (EntityCommandBuffer commands) throws Exception {
+				commands.createEntity();
+				throw new Exception("planner unavailable");
+			}
+		});
+
+		engine.update(deltaTime);
+		executor.runAll();
+
+		try {
+			engine.update(deltaTime);
+			fail();
+		}
+		catch (RuntimeException e) {
+			assertEquals("planner unavailable", e.getCause().getMessage());
+		}
+
+		assertEquals(0, engine.getEntities().size());
+	}
+
+	/** Records a result for the target entity, by the handle it had when the work was prepared. */
+	private static class TargetingSystem extends PlannerSystem {
+		private final Entity target;
+		private long targetHandle;
+
+		public TargetingSystem (Executor executor, Entity target) {
+			super(executor, 1);
+			this.target = target;
+		}
+
+		@Override
+		protected boolean prepare (float deltaTime) {
+			targetHandle = target.getHandle();
+			return super.prepare(deltaTime);
+		}
+
+		@Override
+		protected void process (EntityCommandBuffer commands) throws Exception {
+			commands.add(targetHandle, new ResultComponent());
+		}
+	}
+
+	@Test
+	public void commandsForKeptEntitiesApplied () {
+		ManualExecutor executor = new ManualExecutor();
+		PooledEngine engine = new PooledEngine();
+		Entity target = engine.createEntity();
+		engine.addEntity(target);
+		engine.addSystem(new TargetingSystem(executor, target));
+
+		engine.update(deltaTime);
+		executor.runAll();
+		engine.update(deltaTime);
+
+		assertNotNull(target.getComponent(ResultComponent.class));
+	}
+
+	@Test
+	public void commandsForRecycledEntitiesDropped () {
+		ManualExecutor executor = new ManualExecutor();
+		PooledEngine engine = new PooledEngine();
+		Entity target = engine.createEntity();
+		engine.addEntity(target);
+		TargetingSystem system = new TargetingSystem(executor, target);
+		engine.addSystem(system);
+
+		engine.update(deltaTime);
+		// The entity is recycled before the work records its command.
+		engine.removeEntity(target);
+		Entity recycled = engine.createEntity();
+		engine.addEntity(recycled);
+		executor.runAll();
+		engine.update(deltaTime);
+
+		assertEquals(1, system.numCompleted);
+		assertSame(target, recycled);
+		assertNull(recycled.getComponent(ResultComponent.class));
+	}
+
+	@Test
+	public void commandsForRemovedEntitiesDropped () {
+		ManualExecutor executor = new ManualExecutor();
+		PooledEngine engine = new PooledEngine();
+		Entity target = engine.createEntity();
+		engine.addEntity(target);
+		Entity other = engine.createEntity();
+		engine.addEntity(other);
+		TargetingSystem system = new TargetingSystem(executor, target);
+		engine.addSystem(system);
+
+		engine.update(deltaTime);
+		engine.removeEntity(target);
+		executor.runAll();
+		engine.update(deltaTime);
+
+		assertEquals(1, system.numCompleted);
+		assertNull(target.getComponent(ResultComponent.class));
+		assertNull(other.getComponent(ResultComponent.class));
+	}
+
+	@Test
+	public void removedSystemAbandonsWork () {
+		ManualExecutor executor = new ManualExecutor();
+		Engine engine = new Engine();
+		PlannerSystem system = new PlannerSystem(executor, 1);
+		engine.addSystem(system);
+
+		engine.update(deltaTime);
+		engine.removeSystem(system);
+		executor.runAll();
+
+		assertFalse(system.isWorking());
+		assertNull(system.workThread);
+		assertEquals(0, engine.getEntities().size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidSyncFrames () {
+		new PlannerSystem(null, 0);
+	}
+}
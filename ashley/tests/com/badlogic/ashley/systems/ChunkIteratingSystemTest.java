@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.systems;
+
+import org.junit.Test;
+
+import com.badlogic.ashley.core.ArchetypeChunk;
+import com.badlogic.ashley.core.ArchetypeEngine;
+import com.badlogic.ashley.core.Component;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.Family;
+
+import static org.junit.Assert.*;
+
+public class ChunkIteratingSystemTest {
+	private static final float deltaTime = 0.16f;
+
+	private static class ComponentA implements Component {
+	}
+
+	private static class ComponentB implements Component {
+	}
+
+	private static class SpyComponent implements Component {
+		public int updates = 0;
+	}
+
+	private static class SpySystem extends ChunkIteratingSystem {
+		public int numChunks;
+		public int numStartProcessing;
+		public int numEndProcessing;
+
+		public SpySystem (Family family) {
+			super(family);
+		}
+
+		@Override
+		public void startProcessing () {
+			++numStartProcessing;
+		}
+
+		@Override
+		protected void processChunk (ArchetypeChunk chunk, float deltaTime) {
+			++numChunks;
+			Component[] spies = chunk.getColumn(SpyComponent.class);
+
+			for (int i = 0; i < chunk.size(); ++i) {
+				((SpyComponent)spies[i]).updates++;
+			}
+		}
+
+		@Override
+		public void endProcessing () {
+			++numEndProcessing;
+		}
+	}
+
+	@Test
+	public void processesMatchingChunks () {
+		ArchetypeEngine engine = new ArchetypeEngine(4);
+		SpySystem system = new SpySystem(Family.all(SpyComponent.class).get());
+		engine.addSystem(system);
+
+		SpyComponent[] spies = new SpyComponent[10];
+
+		for (int i = 0; i < spies.length; ++i) {
+			Entity entity = new Entity();
+			spies[i] = new SpyComponent();
+			entity.add(spies[i]);
+			entity.add(i % 2 == 0 ? new ComponentA() : new ComponentB());
+			engine.addEntity(entity);
+		}
+
+		Entity ignored = new Entity();
+		ignored.add(new ComponentA());
+		engine.addEntity(ignored);
+
+		engine.update(deltaTime);
+
+		assertEquals(2, system.getArchetypes().size());
+		assertEquals(4, system.numChunks);
+		assertEquals(1, system.numStartProcessing);
+		assertEquals(1, system.numEndProcessing);
+
+		for (int i = 0; i < spies.length; ++i) {
+			assertEquals(1, spies[i].updates);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void requiresArchetypeEngine () {
+		Engine engine = new Engine();
+		engine.addSystem(new SpySystem(Family.all(SpyComponent.class).get()));
+	}
+}
@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright 2014 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.ashley.systems;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.badlogic.ashley.core.Component;
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityCommandBuffer;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.core.JobScheduler;
+import com.badlogic.ashley.core.ScheduledEngine;
+import com.badlogic.ashley.utils.ImmutableArray;
+
+public class ParallelIteratingSystemTest {
+	private static final float deltaTime = 0.16f;
+
+	private static class ComponentA implements Component {
+	}
+
+	private static class ComponentB implements Component {
+	}
+
+	private static class CounterComponent implements Component {
+		public int updates = 0;
+	}
+
+	private static class CountingSystem extends ParallelIteratingSystem {
+		private ComponentMapper<CounterComponent> cm = ComponentMapper.getFor(CounterComponent.class);
+		public final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		public int numStartProcessing;
+		public int numEndProcessing;
+
+		public CountingSystem (ForkJoinPool pool, int grainSize) {
+			super(Family.all(CounterComponent.class).get(), 0, pool, grainSize);
+		}
+
+		@Override
+		public void startProcessing () {
+			++numStartProcessing;
+		}
+
+		@Override
+		protected void processEntity (Entity entity, float deltaTime, EntityCommandBuffer commands) {
+			++cm.get(entity).updates;
+			threads.add(Thread.currentThread());
+		}
+
+		@Override
+		public void endProcessing () {
+			++numEndProcessing;
+		}
+	}
+
+	private static class StructuralChangeSystem extends ParallelIteratingSystem {
+		public int sizeDuringProcessing = -1;
+
+		public StructuralChangeSystem (int grainSize) {
+			super(Family.all(ComponentA.class).get(), 0, null, grainSize);
+		}
+
+		@Override
+		protected void processEntity (Entity entity, float deltaTime, EntityCommandBuffer commands) {
+			sizeDuringProcessing = getEntities().size();
+			commands.remove(entity, ComponentA.class);
+			commands.add(entity, new ComponentB());
+			commands.add(commands.createEntity(), new ComponentB());
+		}
+	}
+
+	@Test
+	public void processesEveryEntityOnce () {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		Engine engine = new Engine();
+		CountingSystem system = new CountingSystem(pool, 16);
+		engine.addSystem(system);
+
+		for (int i = 0; i < 1000; ++i) {
+			Entity entity = new Entity();
+			entity.add(new CounterComponent());
+			engine.addEntity(entity);
+		}
+
+		engine.update(deltaTime);
+		engine.update(deltaTime);
+
+		ImmutableArray<Entity> entities = system.getEntities();
+
+		for (int i = 0; i < entities.size(); ++i) {
+			assertEquals(2, entities.get(i).getComponent(CounterComponent.class).updates);
+		}
+
+		assertEquals(2, system.numStartProcessing);
+		assertEquals(2, system.numEndProcessing);
+		assertSame(pool, system.getPool());
+		assertTrue(system.threads.size() >= 1);
+
+		pool.shutdown();
+	}
+
+	@Test
+	public void singleChunkRunsOnUpdateThread () {
+		Engine engine = new Engine();
+		CountingSystem system = new CountingSystem(null, ParallelIteratingSystem.DEFAULT_GRAIN_SIZE);
+		engine.addSystem(system);
+
+		for (int i = 0; i < 10; ++i) {
+			Entity entity = new Entity();
+			entity.add(new CounterComponent());
+			engine.addEntity(entity);
+		}
+
+		engine.update(deltaTime);
+
+		assertEquals(1, system.threads.size());
+		assertTrue(system.threads.contains(Thread.currentThread()));
+		assertNotNull(system.getPool());
+	}
+
+	@Test
+	public void emptyFamily () {
+		Engine engine = new Engine();
+		CountingSystem system = new CountingSystem(null, 4);
+		engine.addSystem(system);
+
+		engine.update(deltaTime);
+
+		assertEquals(0, system.threads.size());
+		assertEquals(1, system.numEndProcessing);
+	}
+
+	@Test
+	public void structuralChangesPlayedBackAfterJoin () {
+		Engine engine = new Engine();
+		StructuralChangeSystem system = new StructuralChangeSystem(8);
+		ImmutableArray<Entity> entitiesA = engine.getEntitiesFor(Family.all(ComponentA.class).get());
+		ImmutableArray<Entity> entitiesB = engine.getEntitiesFor(Family.all(ComponentB.class).get());
+		engine.addSystem(system);
+
+		for (int i = 0; i < 100; ++i) {
+			Entity entity = new Entity();
+			entity.add(new ComponentA());
+			engine.addEntity(entity);
+		}
+
+		engine.update(deltaTime);
+
+		assertEquals(100, system.sizeDuringProcessing);
+		assertEquals(0, entitiesA.size());
+		assertEquals(200, entitiesB.size());
+		assertEquals(200, engine.getEntities().size());
+
+		engine.update(deltaTime);
+
+		assertEquals(200, entitiesB.size());
+	}
+
+	@Test
+	public void failingChunkDiscardsCommands () {
+		Engine engine = new Engine();
+		final ImmutableArray<Entity> entitiesB = engine.getEntitiesFor(Family.all(ComponentB.class).get());
+		engine.addSystem(new ParallelIteratingSystem(Family.all(ComponentA.class).get(), 0, null, 2) {
+			@Override
+			protected void processEntity (Entity entity, float deltaTime, EntityCommandBuffer commands) {
+				commands.add(entity, new ComponentB());
+
+				if (entity.getComponent(CounterComponent.class) != null) {
+					throw new IllegalStateException();
+				}
+			}
+		});
+
+		for (int i = 0; i < 10; ++i) {
+			Entity entity = new Entity();
+			entity.add(new ComponentA());
+			engine.addEntity(entity);
+		}
+
+		Entity failing = engine.getEntities().get(5);
+		failing.add(new CounterComponent());
+
+		try {
+			engine.update(deltaTime);
+			fail();
+		}
+		catch (IllegalStateException e) {
+		}
+
+		assertEquals(0, entitiesB.size());
+
+		failing.remove(CounterComponent.class);
+		engine.update(deltaTime);
+
+		assertEquals(10, entitiesB.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidGrainSize () {
+		new CountingSystem(null, 0);
+	}
+
+	@Test
+	public void runsAfterOtherSystems () {
+		Engine engine = new Engine();
+		final CountingSystem system = new CountingSystem(null, 1);
+		engine.addSystem(new EntitySystem(-1) {
+			@Override
+			public void update (float deltaTime) {
+				Entity entity = new Entity();
+				entity.add(new CounterComponent());
+				getEngine().addEntity(entity);
+			}
+		});
+		engine.addSystem(system);
+
+		engine.update(deltaTime);
+		engine.update(deltaTime);
+
+		assertEquals(2, system.getEntities().size());
+		assertEquals(2, system.getEntities().get(0).getComponent(CounterComponent.class).updates);
+		assertEquals(1, system.getEntities().get(1).getComponent(CounterComponent.class).updates);
+	}
+
+	@Test
+	public void changesPlayedBackByScheduledEngine () {
+		ScheduledEngine engine = new ScheduledEngine();
+		engine.addSystem(new StructuralChangeSystem(4) {
+			{
+				writes(ComponentA.class, ComponentB.class);
+			}
+		});
+		// Runs in the same batch, the buffers may only be played back once both are done.
+		engine.addSystem(new EntitySystem() {
+			{
+				reads();
+			}
+
+			@Override
+			public void update (float deltaTime) {
+			}
+		});
+		engine.setValidating(true);
+
+		for (int i = 0; i < 10; ++i) {
+			Entity entity = new Entity();
+			entity.add(new ComponentA());
+			engine.addEntity(entity);
+		}
+
+		assertEquals(1, engine.getBatchCount());
+
+		engine.update(deltaTime);
+
+		assertEquals(0, engine.getEntitiesFor(Family.all(ComponentA.class).get()).size());
+		assertEquals(20, engine.getEntitiesFor(Family.all(ComponentB.class).get()).size());
+	}
+
+	@Test
+	public void sharedDefaultPool () {
+		assertSame(JobScheduler.getDefaultPool(), new CountingSystem(null, 16).getPool());
+		assertSame(JobScheduler.getDefaultPool(), new ScheduledEngine().getJobScheduler().getPool());
+	}
+}
@@ -294,6 +294,42 @@ public class SortedIteratingSystemTest {
 		engine.update(0);
 	}
 
+	@Test
+	public void removedTogetherKeepsOrder () {
+		Engine engine = new Engine();
+
+		final Family family = Family.all(OrderComponent.class).get();
+		final SortedIteratingSystemMock system = new SortedIteratingSystemMock(family);
+		engine.addSystem(system);
+
+		Entity a = createOrderEntity("A", 0);
+		Entity b = createOrderEntity("B", 1);
+		Entity c = createOrderEntity("C", 2);
+		Entity d = createOrderEntity("D", 3);
+		b.add(new ComponentB());
+		d.add(new ComponentB());
+
+		engine.addEntity(a);
+		engine.addEntity(b);
+		engine.addEntity(c);
+		engine.addEntity(d);
+		system.expectedNames.addLast("A");
+		system.expectedNames.addLast("B");
+		system.expectedNames.addLast("C");
+		system.expectedNames.addLast("D");
+		engine.update(0);
+
+		// Reordering without calling forceSort(), removals must not sort the entities again.
+		orderMapper.get(a).zLayer = 3;
+		orderMapper.get(c).zLayer = 1;
+		engine.removeAllEntities(Family.all(ComponentB.class).get());
+		system.expectedNames.addLast("A");
+		system.expectedNames.addLast("C");
+		engine.update(0);
+
+		assertEquals(2, system.getEntities().size());
+	}
+
 	@Test
 	public void processingUtilityFunctions() {
 		final Engine engine = new Engine();
@@ -0,0 +1,67 @@
+package com.badlogic.ashley.benchmark.ashley;
+
+import org.junit.Test;
+
+import com.badlogic.ashley.benchmark.Constants;
+import com.badlogic.ashley.benchmark.ashley.components.MovementComponent;
+import com.badlogic.ashley.benchmark.ashley.components.PositionComponent;
+import com.badlogic.ashley.benchmark.ashley.systems.MovementSystem;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+
+/** Reports the heap retained per entity, measured as the used heap difference around creating many entities. */
+public class EntityMemoryBenchmark extends AbstractBenchmark {
+	private static final int ENTITIES = Constants.ENTITIES_BIG_TEST * 4;
+
+	@BenchmarkOptions(benchmarkRounds = 1, warmupRounds = 0)
+	@Test
+	public void emptyEntities () {
+		long before = usedMemory();
+		Entity[] entities = new Entity[ENTITIES];
+
+		for (int i = 0; i < ENTITIES; ++i) {
+			entities[i] = new Entity();
+		}
+
+		report("empty entity", before, entities);
+	}
+
+	@BenchmarkOptions(benchmarkRounds = 1, warmupRounds = 0)
+	@Test
+	public void engineEntities () {
+		Engine engine = new Engine();
+		engine.addSystem(new MovementSystem());
+
+		long before = usedMemory();
+
+		for (int i = 0; i < ENTITIES; ++i) {
+			Entity entity = new Entity();
+			entity.add(new PositionComponent());
+			entity.add(new MovementComponent());
+			engine.addEntity(entity);
+		}
+
+		report("entity with two components in an engine", before, engine);
+	}
+
+	private static void report (String name, long before, Object retained) {
+		long bytes = usedMemory() - before;
+		System.out.println(name + ": " + bytes / ENTITIES + " bytes per entity");
+		// Keeps the entities reachable until measured.
+		if (retained == null) {
+			throw new IllegalStateException();
+		}
+	}
+
+	private static long usedMemory () {
+		Runtime runtime = Runtime.getRuntime();
+
+		for (int i = 0; i < 4; ++i) {
+			System.gc();
+		}
+
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
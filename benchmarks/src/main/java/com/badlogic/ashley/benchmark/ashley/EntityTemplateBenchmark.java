@@ -0,0 +1,101 @@
+package com.badlogic.ashley.benchmark.ashley;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.badlogic.ashley.benchmark.Constants;
+import com.badlogic.ashley.benchmark.ashley.components.MovementComponent;
+import com.badlogic.ashley.benchmark.ashley.components.PositionComponent;
+import com.badlogic.ashley.benchmark.ashley.components.RadiusComponent;
+import com.badlogic.ashley.benchmark.ashley.components.StateComponent;
+import com.badlogic.ashley.benchmark.ashley.systems.CollisionSystem;
+import com.badlogic.ashley.benchmark.ashley.systems.MovementSystem;
+import com.badlogic.ashley.benchmark.ashley.systems.RemovalSystem;
+import com.badlogic.ashley.benchmark.ashley.systems.StateSystem;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityTemplate;
+import com.badlogic.ashley.core.EntityTemplate.ComponentInitializer;
+import com.badlogic.ashley.core.PooledEngine;
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+
+/** Compares instantiating entities from an {@link EntityTemplate} with creating and adding their components one by one. */
+public class EntityTemplateBenchmark extends AbstractBenchmark {
+	private static PooledEngine engine;
+	private static EntityTemplate template;
+
+	@BeforeClass
+	public static void prepare () {
+		engine = new PooledEngine();
+		engine.addSystem(new MovementSystem());
+		engine.addSystem(new StateSystem());
+		engine.addSystem(new CollisionSystem());
+		engine.addSystem(new RemovalSystem());
+
+		template = new EntityTemplate()
+			.add(PositionComponent.class, new ComponentInitializer<PositionComponent>() {
+				@Override
+				public void initialize (PositionComponent component) {
+					component.pos.set(Constants.MIN_POS, Constants.MAX_POS, 0.0f);
+				}
+			})
+			.add(MovementComponent.class, new ComponentInitializer<MovementComponent>() {
+				@Override
+				public void initialize (MovementComponent component) {
+					component.velocity.set(Constants.MAX_VEL, Constants.MIN_VEL);
+					component.accel.set(Constants.MAX_ACC, Constants.MIN_ACC);
+				}
+			})
+			.add(RadiusComponent.class, new ComponentInitializer<RadiusComponent>() {
+				@Override
+				public void initialize (RadiusComponent component) {
+					component.radius = Constants.MAX_RADIUS;
+				}
+			})
+			.add(StateComponent.class);
+	}
+
+	@BenchmarkOptions(benchmarkRounds = Constants.BENCHMARK_ROUNDS, warmupRounds = Constants.WARMUP_ROUNDS)
+	@Test
+	public void createAndAddComponents () {
+		for (int i = 0; i < Constants.ENTITIES_BIG_TEST; ++i) {
+			Entity entity = engine.createEntity();
+
+			PositionComponent pos = engine.createComponent(PositionComponent.class);
+			pos.pos.set(Constants.MIN_POS, Constants.MAX_POS, 0.0f);
+			entity.add(pos);
+
+			MovementComponent mov = engine.createComponent(MovementComponent.class);
+			mov.velocity.set(Constants.MAX_VEL, Constants.MIN_VEL);
+			mov.accel.set(Constants.MAX_ACC, Constants.MIN_ACC);
+			entity.add(mov);
+
+			RadiusComponent rad = engine.createComponent(RadiusComponent.class);
+			rad.radius = Constants.MAX_RADIUS;
+			entity.add(rad);
+
+			entity.add(engine.createComponent(StateComponent.class));
+
+			engine.addEntity(entity);
+		}
+
+		engine.removeAllEntities();
+	}
+
+	@BenchmarkOptions(benchmarkRounds = Constants.BENCHMARK_ROUNDS, warmupRounds = Constants.WARMUP_ROUNDS)
+	@Test
+	public void instantiateTemplate () {
+		for (int i = 0; i < Constants.ENTITIES_BIG_TEST; ++i) {
+			engine.instantiate(template);
+		}
+
+		engine.removeAllEntities();
+	}
+
+	@BenchmarkOptions(benchmarkRounds = Constants.BENCHMARK_ROUNDS, warmupRounds = Constants.WARMUP_ROUNDS)
+	@Test
+	public void instantiateTemplateInBulk () {
+		engine.instantiate(template, Constants.ENTITIES_BIG_TEST);
+		engine.removeAllEntities();
+	}
+}